@@ -0,0 +1,34 @@
+package Benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+// Runs the suite (or the benchmarks matching the first argument) and writes the results as JSON,
+// by default to benchmarks/results/jmh-<timestamp>.json, for comparing releases.
+// Usage: java Benchmarks.BenchmarkRunner [include regex] [result file]
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : "Benchmarks\\..*Benchmark";
+        String resultFile = args.length > 1 ? args[1] : "benchmarks/results/jmh-"
+                + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json";
+        File parent = new File(resultFile).getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+
+        Options options = new OptionsBuilder()
+                .include(include)
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile)
+                .build();
+        new Runner(options).run();
+        System.out.println("Results written to " + resultFile);
+    }
+}
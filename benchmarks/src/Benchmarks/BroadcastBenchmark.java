@@ -0,0 +1,48 @@
+package Benchmarks;
+
+import Pojos.Message;
+import Pojos.MessageType;
+import Server.Broadcast;
+import Server.PlayerHandler;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Sending one ROUND_START to N recipients: encoding per recipient against encoding once with Broadcast.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastBenchmark {
+    @Param({"2", "16", "256"})
+    public int recipients;
+
+    private List<PlayerHandler> players;
+    private Message message;
+
+    @Setup
+    public void setUp() throws IOException {
+        players = new ArrayList<>(recipients);
+        for (int i = 0; i < recipients; i++) {
+            players.add(Fixtures.player("viewer" + i, 1000));
+        }
+        message = new Message(MessageType.ROUND_START, Fixtures.questions(3));
+    }
+
+    @Benchmark
+    public void perRecipient() throws IOException {
+        for (PlayerHandler player : players) {
+            player.sendMessage(message);
+        }
+    }
+
+    @Benchmark
+    public int broadcast() throws IOException {
+        return new Broadcast(message).sendTo(players);
+    }
+}
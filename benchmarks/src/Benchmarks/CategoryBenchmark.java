@@ -0,0 +1,20 @@
+package Benchmarks;
+
+import Server.Category;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The category offer sent to the choosing player at the start of every round.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CategoryBenchmark {
+    @Benchmark
+    public List<Category> randomCategories() {
+        return Category.randomCategories();
+    }
+}
@@ -0,0 +1,87 @@
+package Benchmarks;
+
+import Pojos.Message;
+import Pojos.MessageType;
+import Server.*;
+
+import java.io.IOException;
+import java.util.*;
+
+// Shared test data for the benchmarks: logged-in players without a socket and one sample message per type.
+final class Fixtures {
+    private static Server server;
+
+    private Fixtures() {
+    }
+
+    // Accepts and discards every frame, never closes.
+    static final class NullConnection extends Connection {
+        NullConnection() {
+            super(new OutboundQueue(1024, OutboundQueue.BackpressurePolicy.DROP));
+        }
+
+        @Override
+        public boolean sendFrame(byte[] frame) {
+            return true;
+        }
+
+        @Override
+        protected void frameQueued() {
+        }
+
+        @Override
+        public boolean isClosed() {
+            return false;
+        }
+
+        @Override
+        public String getRemoteAddress() {
+            return "benchmark";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    static synchronized PlayerHandler player(String username, int rating) throws IOException {
+        if (server == null) {
+            server = new Server();
+        }
+        PlayerHandler player = new PlayerHandler(new NullConnection(), server);
+        player.handleMessage(new Message(MessageType.LOGIN, username));
+        player.setRating(rating);
+        return player;
+    }
+
+    static List<Question> questions(int count) {
+        List<Question> questions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            questions.add(new Question(i, "Which of these is question number " + i + "?",
+                    List.of("The first option", "The second option", "The third option", "The fourth option"), i % 4));
+        }
+        return questions;
+    }
+
+    static Message sampleMessage(MessageType type) {
+        Map<String, Integer> scores = new LinkedHashMap<>();
+        scores.put("alice", 2);
+        scores.put("bob", 1);
+        Object content = switch (type) {
+            case LOGIN -> "alice";
+            case LOGIN_ACCEPTED, RESUME -> "1f0c2b9e7d6a4c3b8e5f1a2d3c4b5a69";
+            case GAME_START, ROUND_COMPLETE, FORFEIT, RESUME_FAILED -> null;
+            case ROUND_START -> questions(2);
+            case CATEGORY_SELECTED -> Category.randomCategories();
+            case ANSWER -> new Answer(1, 2);
+            case ROUND_RESULT -> RoundResult.fromScores(scores);
+            case GAME_END -> GameResult.fromScores(scores, "alice");
+            case RANK_UPDATE -> new RankUpdate("alice", 1016, 16, 42, 100000);
+            case SPECTATE -> 42L;
+            case PING, PONG -> 123456789L;
+            case SPECTATOR_EVENT -> new SpectatorEvent(42, 7, SpectatorEvent.Kind.ANSWER_PROGRESS, 2, "alice", null, 3,
+                    scores);
+        };
+        return new Message(type, content);
+    }
+}
@@ -0,0 +1,77 @@
+package Benchmarks;
+
+import Server.GameProperties;
+import Server.Matchmaker;
+import Server.PlayerHandler;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Time from login to pairing while several threads log players in at once: each invocation hands a burst of
+// distinct players to a running matchmaker and waits until the match callback has paired all of them. A
+// player is only enqueued again after it was paired, so the matchmaker never holds two tickets for one player.
+// Players come in pairs of equal rating spread over several buckets, so every pass can pair them all.
+// Most of the time is the matchmaker waiting for a burst of logins to arrive; the difference between burst
+// sizes is what pairing itself costs.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class MatchmakingBenchmark {
+    private static final AtomicInteger NEXT_PLAYER = new AtomicInteger();
+
+    @Param({"2", "64"})
+    public int loginsPerThread;
+
+    private final Map<PlayerHandler, CountDownLatch> unpaired = new ConcurrentHashMap<>();
+    private Matchmaker matchmaker;
+
+    @State(Scope.Thread)
+    public static class Logins {
+        PlayerHandler[] players;
+
+        @Setup(Level.Trial)
+        public void createPlayers(MatchmakingBenchmark benchmark) throws IOException {
+            players = new PlayerHandler[benchmark.loginsPerThread];
+            for (int i = 0; i < players.length; i++) {
+                int id = NEXT_PLAYER.getAndIncrement();
+                players[i] = Fixtures.player("player-" + id, 600 + (i / 2 * 37) % 800);
+            }
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void startMatchmaker() {
+        matchmaker = new Matchmaker(new GameProperties(), (first, second) -> {
+            unpaired.remove(first).countDown();
+            unpaired.remove(second).countDown();
+        });
+        matchmaker.start();
+    }
+
+    @TearDown(Level.Iteration)
+    public void stopMatchmaker() {
+        matchmaker.shutdown();
+    }
+
+    @Benchmark
+    public int loginToPair(Logins logins) throws InterruptedException {
+        CountDownLatch paired = new CountDownLatch(logins.players.length);
+        for (PlayerHandler player : logins.players) {
+            unpaired.put(player, paired);
+            matchmaker.enqueue(player);
+        }
+        if (!paired.await(5, TimeUnit.SECONDS)) {
+            throw new IllegalStateException(paired.getCount() + " players were never paired");
+        }
+        return logins.players.length / 2;
+    }
+}
@@ -0,0 +1,46 @@
+package Benchmarks;
+
+import Pojos.FrameCodec;
+import Pojos.Message;
+import Pojos.MessageType;
+import Pojos.WireFormat;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Frame encoding and decoding of every message type in both wire formats.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageCodecBenchmark {
+    @Param({"LOGIN", "GAME_START", "ROUND_START", "CATEGORY_SELECTED", "ANSWER",
+            "ROUND_COMPLETE", "ROUND_RESULT", "FORFEIT", "GAME_END", "RANK_UPDATE",
+            "LOGIN_ACCEPTED", "RESUME", "RESUME_FAILED", "SPECTATE", "SPECTATOR_EVENT", "PING", "PONG"})
+    public MessageType type;
+
+    @Param({"BINARY_V1", "JAVA_SERIALIZATION"})
+    public WireFormat format;
+
+    private Message message;
+    private byte[] frame;
+
+    @Setup
+    public void setUp() throws IOException {
+        message = Fixtures.sampleMessage(type);
+        frame = FrameCodec.encode(message, format);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return FrameCodec.encode(message, format);
+    }
+
+    @Benchmark
+    public Message decode() throws IOException {
+        return FrameCodec.decode(frame, FrameCodec.HEADER_LENGTH, frame.length - FrameCodec.HEADER_LENGTH);
+    }
+}
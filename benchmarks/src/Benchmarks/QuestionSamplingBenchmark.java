@@ -0,0 +1,54 @@
+package Benchmarks;
+
+import Server.Category;
+import Server.Question;
+import Server.QuestionDatabase;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+// Round sampling from the frozen per-category arrays against the previous copy-and-shuffle implementation.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuestionSamplingBenchmark {
+    @Param({"100", "10000", "1000000"})
+    public int bankSize;
+
+    @Param({"2"})
+    public int count;
+
+    private QuestionDatabase database;
+    private List<Question> categoryList;
+
+    @Setup
+    public void setUp() {
+        categoryList = new ArrayList<>(bankSize);
+        List<String> options = List.of("A", "B", "C", "D");
+        for (int i = 0; i < bankSize; i++) {
+            categoryList.add(new Question(i, "Question " + i, options, i % 4));
+        }
+        database = new QuestionDatabase(Map.of(Category.MATH, categoryList));
+    }
+
+    @Benchmark
+    public List<Question> indexedSampling() {
+        return database.getQuestionsForRound(Category.MATH, count);
+    }
+
+    // The implementation getQuestionsForRound used before the bank was frozen.
+    @Benchmark
+    public List<Question> copyAndShuffle() {
+        List<Question> categoryQuestions = new ArrayList<>(categoryList);
+        Collections.shuffle(categoryQuestions);
+        List<Question> selectedQuestions = new ArrayList<>();
+        for (int i = 0; i < Math.min(count, categoryQuestions.size()); i++) {
+            selectedQuestions.add(categoryQuestions.get(i));
+        }
+        return selectedQuestions;
+    }
+}
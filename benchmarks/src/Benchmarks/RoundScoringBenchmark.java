@@ -0,0 +1,68 @@
+package Benchmarks;
+
+import Server.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Recording a full round of answers for both seats, the completion check and the end-of-game tally.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoundScoringBenchmark {
+    @Param({"2", "10"})
+    public int questionsPerRound;
+
+    private List<Question> questions;
+    private Round completedRound;
+    private PlayerHandler player1;
+    private PlayerHandler player2;
+
+    @Setup
+    public void setUp() throws IOException {
+        questions = Fixtures.questions(questionsPerRound);
+        completedRound = playRound();
+        player1 = Fixtures.player("alice", 1000);
+        player2 = Fixtures.player("bob", 1000);
+    }
+
+    private Round playRound() {
+        Round round = new Round(questions, Category.MATH);
+        for (int question = 0; question < questionsPerRound; question++) {
+            round.recordAnswer(0, question, question % 4);
+            round.recordAnswer(1, question, (question + 1) % 4);
+        }
+        return round;
+    }
+
+    @Benchmark
+    public boolean recordFullRound() {
+        return playRound().isComplete();
+    }
+
+    @Benchmark
+    public void rejectDuplicateAnswer(Blackhole blackhole) {
+        blackhole.consume(completedRound.recordAnswer(0, 0, 1));
+    }
+
+    @Benchmark
+    public boolean isComplete() {
+        return completedRound.isComplete();
+    }
+
+    @Benchmark
+    public int roundScores() {
+        return completedRound.getScore(0) + completedRound.getScore(1);
+    }
+
+    @Benchmark
+    public GameResult gameResult() {
+        return GameResult.of(player1, completedRound.getScore(0), player2, completedRound.getScore(1));
+    }
+}
@@ -0,0 +1,44 @@
+package Benchmarks;
+
+import Pojos.FrameCodec;
+import Pojos.Message;
+import Pojos.MessageType;
+import Server.Question;
+import Server.QuestionFragmentCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Building a BINARY_V1 ROUND_START frame: encoding the questions against copying cached fragments.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoundStartBenchmark {
+    @Param({"2", "5", "10"})
+    public int questionsPerRound;
+
+    private List<Question> questions;
+    private QuestionFragmentCache cache;
+
+    @Setup
+    public void setUp() throws IOException {
+        questions = Fixtures.questions(questionsPerRound);
+        cache = new QuestionFragmentCache(1024);
+        cache.roundStartFrame(questions);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return FrameCodec.encode(new Message(MessageType.ROUND_START, questions));
+    }
+
+    @Benchmark
+    public byte[] cachedFragments() throws IOException {
+        return cache.roundStartFrame(questions);
+    }
+}
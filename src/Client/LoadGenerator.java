@@ -0,0 +1,246 @@
+package Client;
+
+import Pojos.FrameCodec;
+import Pojos.Message;
+import Pojos.MessageType;
+import Server.*;
+
+import java.io.*;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Headless bots that play complete games against a running server, one virtual thread per bot, and report
+// game throughput plus request/response latency percentiles for the main protocol transitions.
+// Usage: java Client.LoadGenerator [--bots=1000] [--duration=60] [--think-ms=200] [--accuracy=0.7]
+//        [--forfeit-rate=0.02] [--ramp-seconds=5] [--host=localhost] [--port=12649]
+public class LoadGenerator {
+    private final String host;
+    private final int port;
+    private final int bots;
+    private final long durationMillis;
+    private final long thinkMillis;
+    private final double accuracy;
+    private final double forfeitRate;
+    private final long rampMillis;
+
+    private final LatencyHistogram loginToGameStart = new LatencyHistogram();
+    private final LatencyHistogram categoryToRoundStart = new LatencyHistogram();
+    private final LatencyHistogram roundCompleteToResult = new LatencyHistogram();
+    private final AtomicLong gameEnds = new AtomicLong();
+    private final AtomicLong forfeits = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+    private volatile boolean running = true;
+
+    public LoadGenerator(Map<String, String> options) {
+        this.host = options.getOrDefault("host", "localhost");
+        this.port = Integer.parseInt(options.getOrDefault("port", "12649"));
+        this.bots = Integer.parseInt(options.getOrDefault("bots", "1000"));
+        this.durationMillis = Long.parseLong(options.getOrDefault("duration", "60")) * 1000;
+        this.thinkMillis = Long.parseLong(options.getOrDefault("think-ms", "200"));
+        this.accuracy = Double.parseDouble(options.getOrDefault("accuracy", "0.7"));
+        this.forfeitRate = Double.parseDouble(options.getOrDefault("forfeit-rate", "0.02"));
+        this.rampMillis = Long.parseLong(options.getOrDefault("ramp-seconds", "5")) * 1000;
+    }
+
+    public void run() throws InterruptedException {
+        System.out.println("Starting " + bots + " bots against " + host + ":" + port + " for "
+                + durationMillis / 1000 + "s (think " + thinkMillis + "ms, accuracy " + accuracy
+                + ", forfeit rate " + forfeitRate + ")");
+        long start = System.nanoTime();
+        List<Thread> threads = new ArrayList<>(bots);
+        for (int i = 0; i < bots; i++) {
+            int botId = i;
+            threads.add(Thread.ofVirtual().name("bot-" + i).start(() -> runBot(botId)));
+            if (rampMillis > 0) {
+                Thread.sleep(rampMillis / bots, (int) ((rampMillis * 1_000_000 / bots) % 1_000_000));
+            }
+        }
+
+        long lastGameEnds = 0;
+        long lastReport = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        while (System.nanoTime() < deadline) {
+            Thread.sleep(Math.min(5000, Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()))));
+            long now = System.nanoTime();
+            long ends = gameEnds.get();
+            System.out.printf("[%3ds] games/s %.1f, games %d, forfeits %d, errors %d%n",
+                    TimeUnit.NANOSECONDS.toSeconds(now - start),
+                    (ends - lastGameEnds) / 2.0 / ((now - lastReport) / 1e9), ends / 2, forfeits.get(), errors.get());
+            lastGameEnds = ends;
+            lastReport = now;
+        }
+
+        // let games in progress finish, then drop the bots that are still waiting for an opponent
+        running = false;
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        for (Thread thread : threads) {
+            thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(drainDeadline - System.nanoTime())));
+        }
+        for (Socket socket : sockets) {
+            closeQuietly(socket);
+        }
+        report(System.nanoTime() - start);
+    }
+
+    private void runBot(int botId) {
+        int game = 0;
+        while (running) {
+            try {
+                playGame("bot" + botId + "-" + game++);
+            } catch (IOException e) {
+                if (running) {
+                    errors.incrementAndGet();
+                    pause(1000);
+                }
+            }
+        }
+    }
+
+    // One connection per game, as a player would log in again for a rematch.
+    private void playGame(String username) throws IOException {
+        Socket socket = new Socket(host, port);
+        sockets.add(socket);
+        try (socket) {
+            socket.setSoTimeout(120_000);
+            socket.setTcpNoDelay(true);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            boolean forfeitThisGame = random.nextDouble() < forfeitRate;
+
+            long loginSent = System.nanoTime();
+            FrameCodec.writeFrame(out, new Message(MessageType.LOGIN, username));
+            long categorySent = 0;
+            long roundCompleteSent = 0;
+            while (true) {
+                Message message;
+                try {
+                    message = FrameCodec.readFrame(in);
+                } catch (SocketTimeoutException e) {
+                    if (!running) {
+                        return;
+                    }
+                    throw e;
+                }
+                switch (message.getType()) {
+                    case GAME_START -> loginToGameStart.record(micros(loginSent));
+                    case CATEGORY_SELECTED -> {
+                        @SuppressWarnings("unchecked")
+                        List<Category> offered = (List<Category>) message.getContent();
+                        pause(think(random));
+                        categorySent = System.nanoTime();
+                        FrameCodec.writeFrame(out, new Message(MessageType.CATEGORY_SELECTED,
+                                offered.get(random.nextInt(offered.size()))));
+                    }
+                    case ROUND_START -> {
+                        if (categorySent != 0) {
+                            categoryToRoundStart.record(micros(categorySent));
+                            categorySent = 0;
+                        }
+                        if (forfeitThisGame) {
+                            forfeits.incrementAndGet();
+                            FrameCodec.writeFrame(out, new Message(MessageType.FORFEIT, null));
+                            continue;
+                        }
+                        @SuppressWarnings("unchecked")
+                        List<Question> questions = (List<Question>) message.getContent();
+                        for (int i = 0; i < questions.size(); i++) {
+                            pause(think(random));
+                            FrameCodec.writeFrame(out, new Message(MessageType.ANSWER,
+                                    new Answer(i, chooseOption(questions.get(i), random))));
+                        }
+                        roundCompleteSent = System.nanoTime();
+                        FrameCodec.writeFrame(out, new Message(MessageType.ROUND_COMPLETE, null));
+                    }
+                    case ROUND_RESULT -> {
+                        if (roundCompleteSent != 0) {
+                            roundCompleteToResult.record(micros(roundCompleteSent));
+                            roundCompleteSent = 0;
+                        }
+                    }
+                    case GAME_END -> {
+                        gameEnds.incrementAndGet();
+                        return;
+                    }
+                    case PING -> FrameCodec.writeFrame(out, new Message(MessageType.PONG, message.getContent()));
+                    default -> {
+                    }
+                }
+            }
+        } finally {
+            sockets.remove(socket);
+        }
+    }
+
+    private int chooseOption(Question question, ThreadLocalRandom random) {
+        if (random.nextDouble() < accuracy) {
+            return question.getCorrectOptionIndex();
+        }
+        int wrong = random.nextInt(question.getOptions().size() - 1);
+        return wrong >= question.getCorrectOptionIndex() ? wrong + 1 : wrong;
+    }
+
+    // Uniform between half and one and a half times the configured think time.
+    private long think(ThreadLocalRandom random) {
+        return thinkMillis <= 0 ? 0 : thinkMillis / 2 + random.nextLong(thinkMillis + 1);
+    }
+
+    private static long micros(long sentNanos) {
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sentNanos);
+    }
+
+    private static void pause(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // already gone
+        }
+    }
+
+    private void report(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        long games = gameEnds.get() / 2;
+        System.out.println();
+        System.out.printf("%d games in %.1fs: %.1f games/s, %d forfeits, %d errors%n",
+                games, seconds, games / seconds, forfeits.get(), errors.get());
+        System.out.printf("%-34s %8s %10s %10s %10s %10s%n", "latency (ms)", "count", "p50", "p99", "p999", "max");
+        printLatency("LOGIN -> GAME_START", loginToGameStart);
+        printLatency("CATEGORY_SELECTED -> ROUND_START", categoryToRoundStart);
+        printLatency("ROUND_COMPLETE -> ROUND_RESULT", roundCompleteToResult);
+    }
+
+    private static void printLatency(String name, LatencyHistogram histogram) {
+        System.out.printf("%-34s %8d %10.2f %10.2f %10.2f %10.2f%n", name, histogram.getCount(),
+                histogram.getPercentile(0.5) / 1000.0, histogram.getPercentile(0.99) / 1000.0,
+                histogram.getPercentile(0.999) / 1000.0, histogram.getMax() / 1000.0);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                System.err.println("Ignoring argument " + arg + ", expected --name=value");
+                continue;
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        new LoadGenerator(options).run();
+    }
+}
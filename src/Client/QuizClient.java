@@ -1,5 +1,6 @@
 package Client;
 
+import Pojos.FrameCodec;
 import Pojos.Message;
 import Pojos.MessageType;
 import Server.*;
@@ -15,8 +16,8 @@ import java.util.List;
 public class QuizClient {
     private final String SERVER_ADDRESS = "localhost";
     private final int SERVER_PORT = 12649;
-    private ObjectOutputStream out;
-    private ObjectInputStream in;
+    private DataOutputStream out;
+    private DataInputStream in;
     private Socket socket;
     private JFrame frame;
     private JPanel mainPanel;
@@ -33,6 +34,8 @@ public class QuizClient {
     private int timeLeft;
     private int currentRound = 1;
     private Color backgroundColor;
+    private volatile String resumeToken;
+    private final int RESUME_ATTEMPTS = 10;
 
     public QuizClient() {
         initializeConnection();
@@ -43,9 +46,8 @@ public class QuizClient {
     private void initializeConnection() {
         try {
             socket = new Socket(SERVER_ADDRESS, SERVER_PORT);
-            out = new ObjectOutputStream(socket.getOutputStream());
-            out.flush();
-            in = new ObjectInputStream(socket.getInputStream());
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
         } catch (IOException e) {
             JOptionPane.showMessageDialog(null, "Cannot connect to server!");
             System.exit(1);
@@ -267,20 +269,54 @@ public class QuizClient {
 
     private void startMessageListener() {
         new Thread(() -> {
-            try {
-                while (true) {
-                    Message message = (Message) in.readObject();
+            while (true) {
+                try {
+                    Message message = FrameCodec.readFrame(in);
+                    if (message.getType() == MessageType.LOGIN_ACCEPTED) {
+                        resumeToken = (String) message.getContent();
+                    } else if (message.getType() == MessageType.PING) {
+                        // answered here, not on the event thread, so a busy UI does not look like a dead client
+                        sendMessage(new Message(MessageType.PONG, message.getContent()));
+                        continue;
+                    }
                     handleServerMessage(message);
+                } catch (IOException e) {
+                    if (resumeToken != null && reconnect()) {
+                        continue;
+                    }
+                    SwingUtilities.invokeLater(() -> {
+                        JOptionPane.showMessageDialog(frame, "Lost connection to server: " + e.getMessage());
+                        System.exit(1);
+                    });
+                    return;
                 }
-            } catch (IOException | ClassNotFoundException e) {
-                SwingUtilities.invokeLater(() -> {
-                    JOptionPane.showMessageDialog(frame, "Lost connection to server: " + e.getMessage());
-                    System.exit(1);
-                });
             }
         }).start();
     }
 
+    // Opens a new connection and asks the server to put it in our seat; the game then resends its state.
+    private boolean reconnect() {
+        for (int attempt = 1; attempt <= RESUME_ATTEMPTS; attempt++) {
+            try {
+                Thread.sleep(1000);
+                System.out.println("Reconnecting, attempt " + attempt);
+                synchronized (this) {
+                    socket = new Socket(SERVER_ADDRESS, SERVER_PORT);
+                    out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                    in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                    FrameCodec.writeFrame(out, new Message(MessageType.RESUME, resumeToken));
+                }
+                return true;
+            } catch (IOException e) {
+                System.out.println("Reconnect failed: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return false;
+    }
+
     private void handleServerMessage(Message message) {
         SwingUtilities.invokeLater(() -> {
             try {
@@ -322,6 +358,23 @@ public class QuizClient {
                         System.out.println("Game ending");
                         handleGameEnd((GameResult) message.getContent());
                     }
+                    case ANSWER -> {
+                        // after a resume: answers the server already has for this round
+                        Answer answer = (Answer) message.getContent();
+                        if (currentQuestions != null && answer.getQuestionIndex() >= currentQuestionIndex) {
+                            currentQuestionIndex = answer.getQuestionIndex();
+                            questionTimer.stop();
+                            moveToNextQuestion();
+                        }
+                    }
+                    case RESUME_FAILED -> {
+                        JOptionPane.showMessageDialog(frame, "Could not rejoin the game");
+                        System.exit(1);
+                    }
+                    case RANK_UPDATE -> {
+                        RankUpdate update = (RankUpdate) message.getContent();
+                        frame.setTitle("Quiz Game - " + update);
+                    }
                 }
             } catch (Exception e) {
                 e.printStackTrace();
@@ -509,10 +562,8 @@ public class QuizClient {
         mainPanel.repaint();
     }
 
-    private void sendMessage(Message message) throws IOException {
-        out.writeObject(message);
-        out.reset();
-        out.flush();
+    private synchronized void sendMessage(Message message) throws IOException {
+        FrameCodec.writeFrame(out, message);
     }
 
     public static void main(String[] args) {
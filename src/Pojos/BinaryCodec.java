@@ -0,0 +1,358 @@
+package Pojos;
+
+import Server.*;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Hand-written encoder/decoder for WireFormat.BINARY_V1. Layout of a frame:
+// [int length][byte format][byte messageType][content, depending on the type]
+// Strings are an unsigned short byte length followed by UTF-8, nullable values carry a presence byte, and
+// list and map sizes are one unsigned byte.
+public final class BinaryCodec {
+    private static final MessageType[] TYPES = MessageType.values();
+    private static final Category[] CATEGORIES = Category.values();
+    private static final SpectatorEvent.Kind[] SPECTATOR_EVENT_KINDS = SpectatorEvent.Kind.values();
+
+    private static final int SINGLE_CATEGORY = 0;
+    private static final int CATEGORY_LIST = 1;
+
+    private BinaryCodec() {
+    }
+
+    public static byte[] encodeFrame(Message message) throws IOException {
+        Writer out = new Writer(64);
+        out.writeInt(0);
+        out.writeByte(WireFormat.BINARY_V1.getId());
+        out.writeByte(message.getType().ordinal());
+        writeContent(out, message.getType(), message.getContent());
+        byte[] frame = out.toByteArray();
+        FrameCodec.writeLength(frame, frame.length - FrameCodec.HEADER_LENGTH);
+        return frame;
+    }
+
+    // A question's share of a ROUND_START frame. Questions never change after loading, so the bytes can be
+    // cached and frames assembled with encodeRoundStartFrame.
+    public static byte[] encodeQuestion(Question question) throws IOException {
+        Writer out = new Writer(128);
+        writeQuestion(out, question);
+        return out.toByteArray();
+    }
+
+    // Same bytes as encodeFrame for a ROUND_START with these questions, built by copying their fragments.
+    public static byte[] encodeRoundStartFrame(byte[][] questionFragments) {
+        int length = FrameCodec.HEADER_LENGTH + 4;
+        for (byte[] fragment : questionFragments) {
+            length += fragment.length;
+        }
+        byte[] frame = new byte[length];
+        FrameCodec.writeLength(frame, length - FrameCodec.HEADER_LENGTH);
+        int position = FrameCodec.HEADER_LENGTH;
+        frame[position++] = (byte) WireFormat.BINARY_V1.getId();
+        frame[position++] = (byte) MessageType.ROUND_START.ordinal();
+        frame[position++] = (byte) (questionFragments.length >>> 8);
+        frame[position++] = (byte) questionFragments.length;
+        for (byte[] fragment : questionFragments) {
+            System.arraycopy(fragment, 0, frame, position, fragment.length);
+            position += fragment.length;
+        }
+        return frame;
+    }
+
+    public static Message decode(byte[] payload, int offset, int length) throws IOException {
+        Reader in = new Reader(payload, offset, length);
+        int typeIndex = in.readByte();
+        if (typeIndex < 0 || typeIndex >= TYPES.length) {
+            throw new IOException("Unknown message type: " + typeIndex);
+        }
+        MessageType type = TYPES[typeIndex];
+        return new Message(type, readContent(in, type));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writeContent(Writer out, MessageType type, Object content) throws IOException {
+        switch (type) {
+            case LOGIN, LOGIN_ACCEPTED, RESUME -> out.writeNullableString((String) content);
+            case CATEGORY_SELECTED -> {
+                if (content instanceof Category category) {
+                    out.writeByte(SINGLE_CATEGORY);
+                    out.writeByte(category.ordinal());
+                } else {
+                    List<Category> categories = (List<Category>) content;
+                    out.writeByte(CATEGORY_LIST);
+                    out.writeCount(categories.size());
+                    for (Category category : categories) {
+                        out.writeByte(category.ordinal());
+                    }
+                }
+            }
+            case ROUND_START -> {
+                List<Question> questions = (List<Question>) content;
+                out.writeShort(questions.size());
+                for (Question question : questions) {
+                    writeQuestion(out, question);
+                }
+            }
+            case ANSWER -> {
+                Answer answer = (Answer) content;
+                out.writeShort(answer.getQuestionIndex());
+                out.writeByte(answer.getSelectedOption());
+            }
+            case ROUND_RESULT -> writeScores(out, ((RoundResult) content).getScores());
+            case GAME_END -> {
+                GameResult result = (GameResult) content;
+                writeScores(out, result.getScores());
+                out.writeNullableString(result.getWinnerUsername());
+            }
+            case RANK_UPDATE -> {
+                RankUpdate update = (RankUpdate) content;
+                out.writeString(update.getUsername());
+                out.writeInt(update.getRating());
+                out.writeInt(update.getRatingChange());
+                out.writeInt(update.getRank());
+                out.writeInt(update.getTotalPlayers());
+            }
+            case SPECTATE, PING, PONG -> {
+                if (!(content instanceof Long value)) {
+                    throw new IOException(type + " needs a long, got " + content);
+                }
+                out.writeLong(value);
+            }
+            case SPECTATOR_EVENT -> {
+                SpectatorEvent event = (SpectatorEvent) content;
+                out.writeLong(event.getGameId());
+                out.writeLong(event.getSequence());
+                out.writeByte(event.getKind().ordinal());
+                out.writeByte(event.getRound());
+                out.writeNullableString(event.getUsername());
+                out.writeByte(event.getCategory() == null ? -1 : event.getCategory().ordinal());
+                out.writeInt(event.getValue());
+                writeScores(out, event.getScores());
+            }
+            case GAME_START, ROUND_COMPLETE, FORFEIT, RESUME_FAILED -> {
+                // no content
+            }
+        }
+    }
+
+    private static Object readContent(Reader in, MessageType type) throws IOException {
+        return switch (type) {
+            case LOGIN, LOGIN_ACCEPTED, RESUME -> in.readNullableString();
+            case CATEGORY_SELECTED -> {
+                if (in.readByte() == SINGLE_CATEGORY) {
+                    yield readCategory(in);
+                }
+                int count = in.readCount();
+                List<Category> categories = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    categories.add(readCategory(in));
+                }
+                yield categories;
+            }
+            case ROUND_START -> {
+                int count = in.readShort();
+                List<Question> questions = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    questions.add(readQuestion(in));
+                }
+                yield questions;
+            }
+            case ANSWER -> new Answer(in.readShort(), in.readByte());
+            case ROUND_RESULT -> RoundResult.fromScores(readScores(in));
+            case GAME_END -> GameResult.fromScores(readScores(in), in.readNullableString());
+            case RANK_UPDATE -> new RankUpdate(in.readString(), in.readInt(), in.readInt(), in.readInt(), in.readInt());
+            case SPECTATE, PING, PONG -> in.readLong();
+            case SPECTATOR_EVENT -> readSpectatorEvent(in);
+            case GAME_START, ROUND_COMPLETE, FORFEIT, RESUME_FAILED -> null;
+        };
+    }
+
+    private static void writeQuestion(Writer out, Question question) throws IOException {
+        out.writeString(question.getText());
+        List<String> options = question.getOptions();
+        out.writeCount(options.size());
+        for (String option : options) {
+            out.writeString(option);
+        }
+        out.writeByte(question.getCorrectOptionIndex());
+    }
+
+    private static Question readQuestion(Reader in) throws IOException {
+        String text = in.readString();
+        int optionCount = in.readCount();
+        List<String> options = new ArrayList<>(optionCount);
+        for (int i = 0; i < optionCount; i++) {
+            options.add(in.readString());
+        }
+        return new Question(text, options, in.readByte());
+    }
+
+    private static Category readCategory(Reader in) throws IOException {
+        return readCategory(in.readByte());
+    }
+
+    private static Category readCategory(int index) throws IOException {
+        if (index < 0 || index >= CATEGORIES.length) {
+            throw new IOException("Unknown category: " + index);
+        }
+        return CATEGORIES[index];
+    }
+
+    private static SpectatorEvent readSpectatorEvent(Reader in) throws IOException {
+        long gameId = in.readLong();
+        long sequence = in.readLong();
+        int kind = in.readByte();
+        if (kind < 0 || kind >= SPECTATOR_EVENT_KINDS.length) {
+            throw new IOException("Unknown spectator event kind: " + kind);
+        }
+        int round = in.readByte();
+        String username = in.readNullableString();
+        int category = in.readByte();
+        Category chosen = category < 0 ? null : readCategory(category);
+        int value = in.readInt();
+        return new SpectatorEvent(gameId, sequence, SPECTATOR_EVENT_KINDS[kind], round, username, chosen, value,
+                readScores(in));
+    }
+
+    private static void writeScores(Writer out, Map<String, Integer> scores) throws IOException {
+        out.writeCount(scores.size());
+        for (Map.Entry<String, Integer> entry : scores.entrySet()) {
+            out.writeString(entry.getKey());
+            out.writeInt(entry.getValue());
+        }
+    }
+
+    private static Map<String, Integer> readScores(Reader in) throws IOException {
+        int count = in.readCount();
+        Map<String, Integer> scores = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            scores.put(in.readString(), in.readInt());
+        }
+        return scores;
+    }
+
+    private static final class Writer {
+        private byte[] buffer;
+        private int position;
+
+        Writer(int capacity) {
+            this.buffer = new byte[capacity];
+        }
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            buffer[position++] = (byte) value;
+        }
+
+        void writeShort(int value) {
+            ensureCapacity(2);
+            buffer[position++] = (byte) (value >>> 8);
+            buffer[position++] = (byte) value;
+        }
+
+        void writeInt(int value) {
+            ensureCapacity(4);
+            buffer[position++] = (byte) (value >>> 24);
+            buffer[position++] = (byte) (value >>> 16);
+            buffer[position++] = (byte) (value >>> 8);
+            buffer[position++] = (byte) value;
+        }
+
+        // Element counts are one unsigned byte.
+        void writeCount(int count) throws IOException {
+            if (count < 0 || count > 0xFF) {
+                throw new IOException("Too many elements for wire format: " + count);
+            }
+            writeByte(count);
+        }
+
+        void writeLong(long value) {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+
+        void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > 0xFFFF) {
+                throw new IOException("String too long for wire format: " + bytes.length + " bytes");
+            }
+            writeShort(bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        void writeNullableString(String value) throws IOException {
+            writeByte(value == null ? 0 : 1);
+            if (value != null) {
+                writeString(value);
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (position + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] buffer;
+        private final int limit;
+        private int position;
+
+        Reader(byte[] buffer, int offset, int length) {
+            this.buffer = buffer;
+            this.position = offset;
+            this.limit = offset + length;
+        }
+
+        int readByte() throws IOException {
+            require(1);
+            return buffer[position++];
+        }
+
+        int readCount() throws IOException {
+            return readByte() & 0xFF;
+        }
+
+        int readShort() throws IOException {
+            require(2);
+            return ((buffer[position++] & 0xFF) << 8) | (buffer[position++] & 0xFF);
+        }
+
+        int readInt() throws IOException {
+            require(4);
+            return ((buffer[position++] & 0xFF) << 24) | ((buffer[position++] & 0xFF) << 16)
+                    | ((buffer[position++] & 0xFF) << 8) | (buffer[position++] & 0xFF);
+        }
+
+        long readLong() throws IOException {
+            return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+        }
+
+        String readString() throws IOException {
+            int length = readShort();
+            require(length);
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        String readNullableString() throws IOException {
+            return readByte() == 0 ? null : readString();
+        }
+
+        private void require(int bytes) throws IOException {
+            if (position + bytes > limit) {
+                throw new EOFException("Truncated frame");
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package Pojos;
+
+import java.io.*;
+
+// Every message on the wire is a frame: a 4-byte length, one WireFormat byte and the encoded message.
+// Framing lets the blocking and the selector based server read the same byte stream.
+public final class FrameCodec {
+    public static final int HEADER_LENGTH = 4;
+    public static final int MAX_FRAME_LENGTH = 1 << 20;
+
+    private FrameCodec() {
+    }
+
+    public static byte[] encode(Message message) throws IOException {
+        return encode(message, WireFormat.BINARY_V1);
+    }
+
+    public static byte[] encode(Message message, WireFormat format) throws IOException {
+        if (format == WireFormat.BINARY_V1) {
+            return BinaryCodec.encodeFrame(message);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        bytes.write(new byte[HEADER_LENGTH]);
+        bytes.write(format.getId());
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(message);
+        }
+        byte[] frame = bytes.toByteArray();
+        writeLength(frame, frame.length - HEADER_LENGTH);
+        return frame;
+    }
+
+    public static WireFormat formatOf(byte[] payload, int offset) throws IOException {
+        try {
+            return WireFormat.fromId(payload[offset]);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+
+    public static Message decode(byte[] payload, int offset, int length) throws IOException {
+        WireFormat format = formatOf(payload, offset);
+        if (format == WireFormat.BINARY_V1) {
+            return BinaryCodec.decode(payload, offset + 1, length - 1);
+        }
+
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(payload, offset + 1, length - 1))) {
+            return (Message) in.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Invalid message frame", e);
+        }
+    }
+
+    public static void writeFrame(DataOutputStream out, Message message) throws IOException {
+        out.write(encode(message));
+        out.flush();
+    }
+
+    public static Message readFrame(DataInputStream in) throws IOException {
+        byte[] payload = readPayload(in);
+        return decode(payload, 0, payload.length);
+    }
+
+    public static byte[] readPayload(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        checkLength(length);
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        return payload;
+    }
+
+    public static void checkLength(int length) throws IOException {
+        if (length <= 0 || length > MAX_FRAME_LENGTH) {
+            throw new IOException("Invalid frame length: " + length);
+        }
+    }
+
+    static void writeLength(byte[] frame, int length) {
+        frame[0] = (byte) (length >>> 24);
+        frame[1] = (byte) (length >>> 16);
+        frame[2] = (byte) (length >>> 8);
+        frame[3] = (byte) length;
+    }
+}
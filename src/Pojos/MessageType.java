@@ -9,6 +9,14 @@ public enum MessageType {
     ROUND_COMPLETE,
     ROUND_RESULT,
     FORFEIT,
-    GAME_END
+    GAME_END,
+    RANK_UPDATE,
+    LOGIN_ACCEPTED,
+    RESUME,
+    RESUME_FAILED,
+    SPECTATE,
+    SPECTATOR_EVENT,
+    PING,
+    PONG
 }
 
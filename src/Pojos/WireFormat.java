@@ -0,0 +1,27 @@
+package Pojos;
+
+// Payload encoding of a frame, sent as the first byte after the length prefix. The server answers every
+// client in the format of its LOGIN frame, so old clients keep working while new ones use the binary codec.
+public enum WireFormat {
+    JAVA_SERIALIZATION(0),
+    BINARY_V1(1);
+
+    private final int id;
+
+    WireFormat(int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public static WireFormat fromId(int id) {
+        for (WireFormat format : values()) {
+            if (format.id == id) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown wire format: " + id);
+    }
+}
@@ -0,0 +1,100 @@
+package Server;
+
+import Pojos.FrameCodec;
+
+import java.io.*;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Thread-per-connection transport: the reading thread blocks on the socket for the lifetime of the player,
+// a second thread drains the outbound queue so that writes never block the sender.
+public class BlockingConnection extends Connection implements Runnable {
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    public BlockingConnection(Socket socket, OutboundQueue outbound) throws IOException {
+        super(outbound);
+        this.socket = socket;
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (!socket.isClosed()) {
+                byte[] payload = FrameCodec.readPayload(in);
+                dispatchFrame(payload, 0, payload.length);
+            }
+        } catch (EOFException e) {
+            Log.info("Client disconnected: {}", getRemoteAddress());
+        } catch (IOException e) {
+            if (!socket.isClosed()) {
+                Log.warn("Error reading from {}: {}", getRemoteAddress(), e.getMessage());
+            }
+        } finally {
+            close();
+            disconnected();
+        }
+    }
+
+    // Writer loop: everything queued since the last flush goes out in one write/flush.
+    public void writeLoop() {
+        List<byte[]> batch = new ArrayList<>();
+        try {
+            while (!socket.isClosed()) {
+                if (isCloseWhenFlushed() && outbound.isEmpty()) {
+                    close();
+                    return;
+                }
+                if (outbound.drainTo(batch, 1, TimeUnit.SECONDS) == 0) {
+                    continue;
+                }
+                int bytes = 0;
+                for (byte[] frame : batch) {
+                    out.write(frame);
+                    bytes += frame.length;
+                }
+                out.flush();
+                outbound.recordFlush(bytes);
+                batch.clear();
+            }
+        } catch (IOException e) {
+            if (!socket.isClosed()) {
+                Log.warn("Error writing to {}: {}", getRemoteAddress(), e.getMessage());
+            }
+            close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+        }
+    }
+
+    @Override
+    protected void frameQueued() {
+        // the writer loop is already waiting on the queue
+    }
+
+    @Override
+    public boolean isClosed() {
+        return socket.isClosed();
+    }
+
+    @Override
+    public String getRemoteAddress() {
+        return socket.getInetAddress().getHostAddress();
+    }
+
+    @Override
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            Log.warn("Error closing socket for {}: {}", getRemoteAddress(), e.getMessage());
+        }
+        outbound.clear();
+    }
+}
@@ -0,0 +1,75 @@
+package Server;
+
+import Pojos.FrameCodec;
+import Pojos.Message;
+import Pojos.WireFormat;
+
+import java.io.IOException;
+import java.util.Collection;
+
+// One message for many recipients. The message is encoded at most once per wire format, the first time a
+// recipient using that format needs it, and every recipient's outbound queue gets the same frame array.
+// Frames are never modified after encoding (connections only wrap them for writing), so sharing is safe.
+// A Broadcast can be kept and sent again, e.g. to spectators that join later.
+public final class Broadcast {
+    private static final WireFormat[] FORMATS = WireFormat.values();
+
+    private final Message message;
+    private final byte[][] frames = new byte[FORMATS.length][];
+
+    public Broadcast(Message message) {
+        this.message = message;
+    }
+
+    // For a message whose binary frame was already built elsewhere, e.g. from cached fragments.
+    public Broadcast(Message message, byte[] binaryFrame) {
+        this.message = message;
+        frames[WireFormat.BINARY_V1.ordinal()] = binaryFrame;
+    }
+
+    public Message getMessage() {
+        return message;
+    }
+
+    public synchronized byte[] frameFor(WireFormat format) throws IOException {
+        byte[] frame = frames[format.ordinal()];
+        if (frame == null) {
+            frame = FrameCodec.encode(message, format);
+            frames[format.ordinal()] = frame;
+        }
+        return frame;
+    }
+
+    // Returns how many recipients the frame was handed to. A failing recipient is logged by its handler and
+    // skipped; only an encoding failure, which would fail for everyone, is thrown.
+    public int sendTo(PlayerHandler... recipients) throws IOException {
+        int delivered = 0;
+        for (PlayerHandler recipient : recipients) {
+            if (send(recipient)) {
+                delivered++;
+            }
+        }
+        return delivered;
+    }
+
+    public int sendTo(Collection<PlayerHandler> recipients) throws IOException {
+        int delivered = 0;
+        for (PlayerHandler recipient : recipients) {
+            if (send(recipient)) {
+                delivered++;
+            }
+        }
+        return delivered;
+    }
+
+    private boolean send(PlayerHandler recipient) throws IOException {
+        Connection connection = recipient.getConnection(); // read once, a resume may swap it
+        byte[] frame = frameFor(connection.getWireFormat());
+        try {
+            recipient.sendFrame(message.getType(), frame, connection);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package Server;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+// Static cluster membership read from cluster.properties, shared by the router and every node:
+//   router.port=12649
+//   node.1=localhost:12650
+//   node.1.metrics.port=9405
+// Node ids are small positive integers; they prefix the resume tokens a node hands out so the router can
+// send a RESUME back to the node that holds the seat, and fill the top bits of its game ids so a SPECTATE
+// goes to the node running the game.
+public class ClusterConfig {
+    public static final String DEFAULT_FILE = "cluster.properties";
+    public static final int MAX_NODE_ID = 0x7FFF;
+    private static final int GAME_ID_NODE_SHIFT = 48;
+
+    private final int routerPort;
+    private final Map<Integer, Node> nodes;
+
+    public static final class Node {
+        private final int id;
+        private final String host;
+        private final int port;
+        private final int metricsPort;
+
+        Node(int id, String host, int port, int metricsPort) {
+            this.id = id;
+            this.host = host;
+            this.port = port;
+            this.metricsPort = metricsPort;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        // 0 when the node does not serve metrics
+        public int getMetricsPort() {
+            return metricsPort;
+        }
+
+        @Override
+        public String toString() {
+            return "node " + id + " (" + host + ":" + port + ")";
+        }
+    }
+
+    private ClusterConfig(int routerPort, Map<Integer, Node> nodes) {
+        this.routerPort = routerPort;
+        this.nodes = nodes;
+    }
+
+    public static ClusterConfig load(String file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream input = new FileInputStream(file)) {
+            properties.load(input);
+        }
+        Map<Integer, Node> nodes = new TreeMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (!key.matches("node\\.\\d+")) {
+                continue;
+            }
+            int id = Integer.parseInt(key.substring("node.".length()));
+            if (id > MAX_NODE_ID) {
+                throw new IOException("Node ids must not exceed " + MAX_NODE_ID + ", got " + key);
+            }
+            String address = properties.getProperty(key).trim();
+            int colon = address.lastIndexOf(':');
+            if (colon < 0) {
+                throw new IOException("Expected host:port for " + key + " but got " + address);
+            }
+            int metricsPort = Integer.parseInt(properties.getProperty(key + ".metrics.port", "0").trim());
+            nodes.put(id, new Node(id, address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)),
+                    metricsPort));
+        }
+        if (nodes.isEmpty()) {
+            throw new IOException(file + " does not list any node.<id>=host:port entries");
+        }
+        int routerPort = Integer.parseInt(properties.getProperty("router.port", "12649").trim());
+        return new ClusterConfig(routerPort, Collections.unmodifiableMap(nodes));
+    }
+
+    // sequence is a node-local game counter, well below 2^48
+    public static long gameIdOf(int nodeId, long sequence) {
+        return (long) nodeId << GAME_ID_NODE_SHIFT | sequence;
+    }
+
+    public static int nodeIdOfGame(long gameId) {
+        return (int) (gameId >>> GAME_ID_NODE_SHIFT);
+    }
+
+    public int getRouterPort() {
+        return routerPort;
+    }
+
+    public Collection<Node> getNodes() {
+        return nodes.values();
+    }
+
+    public Node getNode(int id) {
+        return nodes.get(id);
+    }
+}
@@ -0,0 +1,266 @@
+package Server;
+
+import Pojos.FrameCodec;
+import Pojos.Message;
+import Pojos.MessageType;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Front door of a cluster. Clients connect here exactly as they would to a single server; the router reads
+// only the first frame to choose a node and from then on copies bytes both ways, one virtual thread per
+// direction. Games never span nodes: logins are placed in pairs, the first of a pair on the node with the
+// fewest open connections and the second on the same node, so that node's matchmaker has both of them.
+// A RESUME goes to the node named by its token's prefix, which is the node holding the seat, and a SPECTATE
+// to the node named by the top bits of its game id; neither takes part in pairing.
+// Usage: java Server.ClusterRouter [cluster.properties]
+public class ClusterRouter {
+    private static final int CONNECT_TIMEOUT_MILLIS = 2000;
+    private static final long NODE_RETRY_MILLIS = 5000;
+
+    private final ClusterConfig config;
+    private final Map<Integer, NodeState> nodes = new LinkedHashMap<>();
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+    private final AtomicLong routedLogins = new AtomicLong();
+    private final AtomicLong routedResumes = new AtomicLong();
+    private final AtomicLong routedSpectators = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private NodeState openNode; // node that received the first login of a pair still waiting for its partner
+    private Socket openClient;
+
+    private static final class NodeState {
+        final ClusterConfig.Node node;
+        final AtomicInteger connections = new AtomicInteger();
+        volatile long downUntil;
+
+        NodeState(ClusterConfig.Node node) {
+            this.node = node;
+        }
+
+        boolean isUp(long now) {
+            return downUntil <= now;
+        }
+    }
+
+    public ClusterRouter(ClusterConfig config) {
+        this.config = config;
+        for (ClusterConfig.Node node : config.getNodes()) {
+            nodes.put(node.getId(), new NodeState(node));
+        }
+    }
+
+    public void start() throws IOException {
+        Thread reporter = new Thread(this::reportLoop, "router-report");
+        reporter.setDaemon(true);
+        reporter.start();
+        try (ServerSocket serverSocket = new ServerSocket(config.getRouterPort())) {
+            Log.info("Cluster router on port {} for {} nodes", config.getRouterPort(), nodes.size());
+            while (true) {
+                Socket client = serverSocket.accept();
+                Thread.ofVirtual().name("route-" + client.getPort()).start(() -> route(client));
+            }
+        }
+    }
+
+    private void route(Socket client) {
+        clients.add(client);
+        NodeState target = null;
+        try (client) {
+            client.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(client.getInputStream()));
+            byte[] first = FrameCodec.readPayload(in);
+            Message message = FrameCodec.decode(first, 0, first.length);
+
+            Socket upstream;
+            if (message.getType() == MessageType.RESUME) {
+                target = nodeOfToken(message.getContent() instanceof String token ? token : null);
+                upstream = target == null ? null : connect(target);
+                if (upstream == null) {
+                    target = null;
+                    reject(client, first, new Message(MessageType.RESUME_FAILED, null));
+                    return;
+                }
+                routedResumes.incrementAndGet();
+            } else if (message.getType() == MessageType.SPECTATE) {
+                long gameId = message.getContent() instanceof Long id ? id : 0;
+                target = claim(ClusterConfig.nodeIdOfGame(gameId));
+                upstream = target == null ? null : connect(target);
+                if (upstream == null) {
+                    target = null;
+                    reject(client, first, new Message(MessageType.SPECTATOR_EVENT, new SpectatorEvent(gameId, 0,
+                            SpectatorEvent.Kind.NOT_FOUND, 0, null, null, 0, null)));
+                    return;
+                }
+                routedSpectators.incrementAndGet();
+            } else {
+                target = placeLogin(client);
+                upstream = connect(target);
+                while (upstream == null) {
+                    target = placeLogin(client);
+                    if (!target.isUp(System.currentTimeMillis())) {
+                        Log.warn("No cluster node reachable, dropping {}", client.getRemoteSocketAddress());
+                        target.connections.decrementAndGet();
+                        target = null;
+                        return;
+                    }
+                    upstream = connect(target);
+                }
+                routedLogins.incrementAndGet();
+            }
+            Log.debug("Routing {} {} to {}", message.getType(), client.getRemoteSocketAddress(), target.node);
+            Socket node = upstream;
+            try (node) {
+                DataOutputStream toNode = new DataOutputStream(new BufferedOutputStream(node.getOutputStream()));
+                toNode.writeInt(first.length);
+                toNode.write(first);
+                toNode.flush();
+                Thread downstream = Thread.ofVirtual().name("route-" + client.getPort() + "-down")
+                        .start(() -> pipe(node, client));
+                // the rest of the client's bytes, starting with what the first read already buffered
+                in.transferTo(node.getOutputStream());
+                node.shutdownOutput();
+                downstream.join(TimeUnit.SECONDS.toMillis(5));
+            }
+        } catch (IOException e) {
+            Log.debug("Routed connection {} closed: {}", client.getRemoteSocketAddress(), e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            clients.remove(client);
+            if (target != null) {
+                target.connections.decrementAndGet();
+            }
+            clearOpenSlot(client);
+        }
+    }
+
+    private static void pipe(Socket from, Socket to) {
+        try {
+            from.getInputStream().transferTo(to.getOutputStream());
+        } catch (IOException e) {
+            // either side closed
+        } finally {
+            try {
+                to.close();
+            } catch (IOException e) {
+                // already closed
+            }
+        }
+    }
+
+    // Pairs logins: if a login is waiting for a partner the new one joins it on the same node, otherwise it
+    // opens a new pair on the least loaded node that is up.
+    private synchronized NodeState placeLogin(Socket client) {
+        long now = System.currentTimeMillis();
+        if (openNode != null && openNode.isUp(now) && !openClient.isClosed()) {
+            NodeState node = openNode;
+            openNode = null;
+            openClient = null;
+            node.connections.incrementAndGet();
+            return node;
+        }
+        NodeState best = null;
+        for (NodeState candidate : nodes.values()) {
+            boolean better = best == null
+                    || candidate.isUp(now) && !best.isUp(now)
+                    || candidate.isUp(now) == best.isUp(now) && candidate.connections.get() < best.connections.get();
+            if (better) {
+                best = candidate;
+            }
+        }
+        openNode = best;
+        openClient = client;
+        best.connections.incrementAndGet();
+        return best;
+    }
+
+    private synchronized void clearOpenSlot(Socket client) {
+        if (openClient == client) {
+            openNode = null;
+            openClient = null;
+        }
+    }
+
+    private NodeState nodeOfToken(String token) {
+        int dot = token == null ? -1 : token.indexOf('.');
+        if (dot <= 0) {
+            return null;
+        }
+        try {
+            return claim(Integer.parseInt(token.substring(0, dot)));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Counts a connection on the node with this id, if there is one.
+    private NodeState claim(int nodeId) {
+        NodeState node = nodes.get(nodeId);
+        if (node != null) {
+            node.connections.incrementAndGet();
+        }
+        return node;
+    }
+
+    // Returns null if the node cannot be reached and marks it down for a while; the caller's connection count
+    // on it is released in that case.
+    private Socket connect(NodeState target) {
+        Socket upstream = new Socket();
+        try {
+            upstream.connect(new InetSocketAddress(target.node.getHost(), target.node.getPort()), CONNECT_TIMEOUT_MILLIS);
+            upstream.setTcpNoDelay(true);
+            return upstream;
+        } catch (IOException e) {
+            target.connections.decrementAndGet();
+            target.downUntil = System.currentTimeMillis() + NODE_RETRY_MILLIS;
+            Log.warn("Cannot reach {}: {}", target.node, e.getMessage());
+            try {
+                upstream.close();
+            } catch (IOException ignored) {
+                // nothing to release
+            }
+            return null;
+        }
+    }
+
+    // Answers in the wire format of the client's first frame.
+    private void reject(Socket client, byte[] first, Message reply) throws IOException {
+        rejected.incrementAndGet();
+        OutputStream out = client.getOutputStream();
+        out.write(FrameCodec.encode(reply, FrameCodec.formatOf(first, 0)));
+        out.flush();
+    }
+
+    private void reportLoop() {
+        while (true) {
+            try {
+                Thread.sleep(30_000);
+            } catch (InterruptedException e) {
+                return;
+            }
+            StringBuilder load = new StringBuilder();
+            for (NodeState state : nodes.values()) {
+                load.append(' ').append(state.node.getId()).append('=').append(state.connections.get());
+                if (!state.isUp(System.currentTimeMillis())) {
+                    load.append("(down)");
+                }
+            }
+            Log.info("Router: clients={} logins={} resumes={} spectators={} rejected={} connections by node:{}",
+                    clients.size(), routedLogins.get(), routedResumes.get(), routedSpectators.get(), rejected.get(),
+                    load.toString());
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Log.configure(new GameProperties());
+        ClusterConfig config = ClusterConfig.load(args.length > 0 ? args[0] : ClusterConfig.DEFAULT_FILE);
+        new ClusterRouter(config).start();
+    }
+}
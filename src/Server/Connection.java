@@ -0,0 +1,125 @@
+package Server;
+
+import Pojos.FrameCodec;
+import Pojos.Message;
+import Pojos.MessageType;
+import Pojos.WireFormat;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+// Transport behind a PlayerHandler. Implementations decode incoming frames and pass them to the
+// handler, and drain already encoded frames from the outbound queue to the client.
+public abstract class Connection {
+    protected final OutboundQueue outbound;
+    protected volatile PlayerHandler handler;
+    private volatile WireFormat wireFormat = WireFormat.BINARY_V1;
+    private volatile boolean formatNegotiated;
+    private volatile boolean closeWhenFlushed;
+    private volatile long lastReceivedAt = System.nanoTime(); // any frame counts as a sign of life
+    private final RttEstimator rtt = new RttEstimator();
+
+    protected Connection(OutboundQueue outbound) {
+        this.outbound = outbound;
+    }
+
+    public void setHandler(PlayerHandler handler) {
+        this.handler = handler;
+    }
+
+    public PlayerHandler getHandler() {
+        return handler;
+    }
+
+    // Outgoing frames use the format the client chose for its LOGIN frame.
+    public WireFormat getWireFormat() {
+        return wireFormat;
+    }
+
+    public RttEstimator getRtt() {
+        return rtt;
+    }
+
+    public long getLastReceivedAt() {
+        return lastReceivedAt;
+    }
+
+    // Until the first frame arrives we do not know which format the client can read.
+    public boolean isFormatNegotiated() {
+        return formatNegotiated;
+    }
+
+    public OutboundQueue getOutboundQueue() {
+        return outbound;
+    }
+
+    // Never writes on the calling thread, so a slow client cannot hold up the game sending to it.
+    // Returns false if the frame was discarded instead of queued.
+    public boolean sendFrame(byte[] frame) throws IOException {
+        if (isClosed()) {
+            Log.debug("Connection to {} is closed, frame discarded", getRemoteAddress());
+            return false;
+        }
+
+        OutboundQueue.OfferResult result;
+        try {
+            result = outbound.offer(frame);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for outbound queue space");
+        }
+
+        switch (result) {
+            case QUEUED -> frameQueued();
+            case DROPPED -> Log.warn("Outbound queue full for {}, frame dropped", getRemoteAddress());
+            case OVERFLOW -> {
+                Log.warn("Outbound queue full for {}, disconnecting", getRemoteAddress());
+                close();
+            }
+        }
+        return result == OutboundQueue.OfferResult.QUEUED;
+    }
+
+    // Unlike close(), lets the writer side finish what is already queued first.
+    public void closeAfterFlush() {
+        closeWhenFlushed = true;
+        frameQueued();
+    }
+
+    protected boolean isCloseWhenFlushed() {
+        return closeWhenFlushed;
+    }
+
+    // Tells the writer side that there is something to drain.
+    protected abstract void frameQueued();
+
+    public abstract boolean isClosed();
+
+    public abstract String getRemoteAddress();
+
+    public abstract void close();
+
+    // Called by the reading thread only, so formatNegotiated is only ever written by one thread.
+    protected void dispatchFrame(byte[] payload, int offset, int length) throws IOException {
+        lastReceivedAt = System.nanoTime();
+        if (!formatNegotiated) {
+            wireFormat = FrameCodec.formatOf(payload, offset);
+            formatNegotiated = true;
+        }
+        dispatch(FrameCodec.decode(payload, offset, length));
+    }
+
+    protected void dispatch(Message message) throws IOException {
+        if (message.getType() == MessageType.PONG && message.getContent() instanceof Long stamp) {
+            rtt.pongReceived(stamp, lastReceivedAt);
+        }
+        handler.handleMessage(message);
+    }
+
+    protected void disconnected() {
+        PlayerHandler current = handler;
+        if (current != null) {
+            current.onDisconnect(this);
+        }
+    }
+}
@@ -5,55 +5,300 @@ import Pojos.MessageType;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
+// Each game is an actor: start, player messages, disconnects and timer events are all sent to its mailbox
+// and run one at a time, so the game state below is only ever touched by one thread and needs no locks.
 public class Game {
+    private final long id;
     private final PlayerHandler player1;
     private final PlayerHandler player2;
     private final GameProperties properties;
     private final QuestionDatabase questionDB;
+    private final Server server;
+    private final GameScheduler scheduler;
+    private final TimingWheel deadlineWheel;
+    private final TimingWheel.Timeout[] answerDeadlines = new TimingWheel.Timeout[2];
+    private final Mailbox mailbox;
+    private final Set<ScheduledFuture<?>> pendingTasks = new HashSet<>();
     private final List<Round> rounds = new ArrayList<>();
+    private final int[] totalScores = new int[Round.SEATS];
     private int currentRoundIndex = 0;
+    private long roundStartedAt;
     private boolean player1Turn = true;
+    private int forfeitSeat = -1;
+    private List<Category> offeredCategories; // while waiting for the chooser to pick, for a resume
+    private SpectatorFeed spectatorFeed; // created when the first spectator joins
+    private Broadcast roundStart; // the current round's questions, kept for a resume
+    private volatile boolean finished;
 
-    public Game(PlayerHandler player1, PlayerHandler player2, GameProperties properties, QuestionDatabase questionDB) {
+    public Game(PlayerHandler player1, PlayerHandler player2, Server server) {
         this.player1 = player1;
         this.player2 = player2;
-        this.properties = properties;
-        this.questionDB = questionDB;
+        this.server = server;
+        this.id = server.nextGameId();
+        this.properties = server.getGameProperties();
+        this.questionDB = server.getQuestionDatabase(); // kept for the whole game, reloads only affect new games
+        this.scheduler = server.getScheduler();
+        this.deadlineWheel = server.getDeadlineWheel();
+        this.mailbox = new Mailbox("game-" + id + "[" + getDescription() + "]", server.getExecutors().getGameExecutor());
 
         player1.setCurrentGame(this);
         player2.setCurrentGame(this);
 
-        System.out.println("Created new game between " + player1.getUsername() + " and " + player2.getUsername());
+        Log.info("Created new game {} between {} and {}", id, player1.getUsername(), player2.getUsername());
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getDescription() {
+        return player1.getUsername() + "-vs-" + player2.getUsername();
+    }
+
+    public boolean isFinished() {
+        return finished;
     }
 
     public void start() {
+        mailbox.send(this::onStart);
+    }
+
+    private void onStart() {
         try {
-            System.out.println("Starting game between " + player1.getUsername() + " and " + player2.getUsername());
+            Log.info("Starting game {}", id);
             initializeGame();
             sendGameStart();
+            scheduleTask("countdown", this::startNextRoundQuietly, properties.getGameStartDelayMillis());
+        } catch (IOException e) {
+            Log.error("Error starting game " + id, e);
+        }
+    }
+
+    // Delayed actions go through the server's shared scheduler, which only posts them back to the mailbox.
+    // They are cancelled when the game ends early.
+    private void scheduleTask(String name, Runnable task, long delayMillis) {
+        if (finished) {
+            return;
+        }
+        ScheduledFuture<?>[] future = new ScheduledFuture<?>[1];
+        future[0] = scheduler.schedule("game-" + id + "[" + getDescription() + "]-" + name, () -> mailbox.send(() -> {
+            if (pendingTasks.remove(future[0]) && !finished) {
+                task.run();
+            }
+        }), delayMillis);
+        pendingTasks.add(future[0]);
+    }
+
+    private void cancelPendingTasks() {
+        for (ScheduledFuture<?> task : pendingTasks) {
+            task.cancel(false);
+        }
+        pendingTasks.clear();
+        cancelAnswerDeadline(player1);
+        cancelAnswerDeadline(player2);
+    }
+
+    private int seatOf(PlayerHandler player) {
+        return player == player1 ? 0 : 1;
+    }
+
+    // The server owns the answer timeout: each player always has a deadline for the next question
+    // they have not answered yet, so a silent client cannot keep the round open.
+    private void armAnswerDeadline(PlayerHandler player) {
+        armAnswerDeadline(player, 0);
+    }
+
+    private void armAnswerDeadline(PlayerHandler player, long networkCreditNanos) {
+        cancelAnswerDeadline(player);
+        Round round = rounds.get(currentRoundIndex);
+        int questionIndex = round.getFirstUnanswered(seatOf(player));
+        if (finished || questionIndex >= round.getQuestionCount()) {
+            return;
+        }
+        int roundIndex = currentRoundIndex;
+        long timeoutMillis = properties.getAnswerTimeoutSeconds() * 1000L + properties.getAnswerDeadlineGraceMillis()
+                + TimeUnit.NANOSECONDS.toMillis(networkCreditNanos);
+        answerDeadlines[seatOf(player)] = deadlineWheel.schedule(
+                () -> mailbox.send(() -> handleAnswerTimeout(player, roundIndex, questionIndex)), timeoutMillis);
+    }
+
+    // Half the player's smoothed RTT, capped so a client that holds back its PONGs cannot buy much time.
+    private long oneWayDelayNanos(PlayerHandler player) {
+        long rtt = player.getConnection().getRtt().getSmoothedNanos();
+        if (rtt <= 0) {
+            return 0;
+        }
+        return Math.min(rtt / 2, TimeUnit.MILLISECONDS.toNanos(properties.getRttCreditMaxMillis()));
+    }
+
+    private void cancelAnswerDeadline(PlayerHandler player) {
+        int seat = seatOf(player);
+        if (answerDeadlines[seat] != null) {
+            answerDeadlines[seat].cancel();
+            answerDeadlines[seat] = null;
+        }
+    }
+
+    private void handleAnswerTimeout(PlayerHandler player, int roundIndex, int questionIndex) {
+        if (finished || roundIndex != currentRoundIndex) {
+            return;
+        }
+        Round round = rounds.get(roundIndex);
+        int seat = seatOf(player);
+        if (!round.recordAnswer(seat, questionIndex, Round.TIMED_OUT)) {
+            return; // answered while the deadline was firing, the answer armed the next deadline
+        }
+
+        Log.debug("No answer from {} for question {}, recorded timeout", player.getUsername(), questionIndex);
+        publishAnswerProgress(player, round);
+        try {
+            if (round.getFirstUnanswered(seat) < round.getQuestionCount()) {
+                armAnswerDeadline(player);
+            } else {
+                handleRoundComplete(player);
+            }
+        } catch (IOException e) {
+            Log.warn("Error completing round after timeout: {}", e.getMessage());
+        }
+    }
+
+    private void startNextRoundQuietly() {
+        try {
             startNextRound();
         } catch (IOException e) {
-            System.err.println("Error starting game: " + e.getMessage());
-            e.printStackTrace();
+            Log.warn("Error starting next round: {}", e.getMessage());
         }
     }
 
     private void initializeGame() {
-        System.out.println("Initializing game with " + properties.getRoundCount() + " rounds");
+        Log.debug("Initializing game with {} rounds", properties.getRoundCount());
         for (int i = 0; i < properties.getRoundCount(); i++) {
             rounds.add(new Round(new ArrayList<>(), Category.HISTORY));
         }
     }
 
     private void sendGameStart() throws IOException {
-        System.out.println("Sending game start message to players");
+        Log.debug("Sending game start message to players");
         Message gameStartMessage = new Message(MessageType.GAME_START, null);
-        player1.sendMessage(gameStartMessage);
-        player2.sendMessage(gameStartMessage);
+        new Broadcast(gameStartMessage).sendTo(player1, player2);
+    }
+
+    public void handlePlayerDisconnect(PlayerHandler player) {
+        mailbox.send(() -> onPlayerDisconnect(player));
+    }
+
+    private void onPlayerDisconnect(PlayerHandler player) {
+        if (finished) {
+            return;
+        }
+        Log.info("{} disconnected, forfeiting game {}", player.getUsername(), id);
+        try {
+            handlePlayerForfeit(player);
+        } catch (IOException e) {
+            Log.warn("Error ending game after disconnect: {}", e.getMessage());
+        }
+    }
+
+    // The player is back on a new connection; anything sent while they were away was discarded, so resend
+    // the current phase: the category offer, or the round's questions followed by the answers already
+    // recorded for them (timeouts included) so the client can continue at the first open question.
+    public void handlePlayerResumed(PlayerHandler player) {
+        mailbox.send(() -> onPlayerResumed(player));
+    }
+
+    private void onPlayerResumed(PlayerHandler player) {
+        if (finished) {
+            return;
+        }
+        try {
+            PlayerHandler categoryChooser = player1Turn ? player1 : player2;
+            if (offeredCategories != null) {
+                if (player == categoryChooser) {
+                    player.sendMessage(new Message(MessageType.CATEGORY_SELECTED, offeredCategories));
+                }
+                return;
+            }
+            Round round = rounds.get(currentRoundIndex);
+            if (round.getQuestionCount() == 0) {
+                return; // between rounds, the next one starts normally
+            }
+            int seat = seatOf(player);
+            roundStart.sendTo(player);
+            for (int i = 0; i < round.getQuestionCount(); i++) {
+                int selected = round.getSelectedOption(seat, i);
+                if (selected != Round.NOT_ANSWERED) {
+                    player.sendMessage(new Message(MessageType.ANSWER, new Answer(i, selected)));
+                }
+            }
+        } catch (IOException e) {
+            Log.warn("Error resending state to {}: {}", player.getUsername(), e.getMessage());
+        }
+    }
+
+    // Spectators get a JOINED snapshot directly and then every event published after it.
+    public void addSpectator(PlayerHandler spectator) {
+        mailbox.send(() -> onSpectatorJoined(spectator));
+    }
+
+    private void onSpectatorJoined(PlayerHandler spectator) {
+        try {
+            if (finished) {
+                spectator.sendMessage(new Message(MessageType.SPECTATOR_EVENT,
+                        new SpectatorEvent(id, 0, SpectatorEvent.Kind.NOT_FOUND, 0, null, null, 0, null)));
+                return;
+            }
+            if (spectatorFeed == null) {
+                spectatorFeed = new SpectatorFeed(id, properties.getSpectatorRingCapacity(),
+                        server.getExecutors().getSpectatorExecutor(), scheduler, server.getMetrics());
+            }
+            spectator.sendMessage(new Message(MessageType.SPECTATOR_EVENT, new SpectatorEvent(id,
+                    spectatorFeed.getHead(), SpectatorEvent.Kind.JOINED, spectatorRound(), null, null, 0,
+                    namedScores(totalScores[0], totalScores[1]))));
+            spectatorFeed.subscribe(spectator);
+            Log.debug("Spectator {} joined game {}", spectator.getConnection().getRemoteAddress(), id);
+        } catch (IOException e) {
+            Log.debug("Could not add spectator to game {}: {}", id, e.getMessage());
+        }
+    }
+
+    public int getSpectatorCount() {
+        SpectatorFeed feed = spectatorFeed;
+        return feed == null ? 0 : feed.getSubscriberCount();
+    }
+
+    // Nothing is built unless someone is watching.
+    private void publish(SpectatorEvent.Kind kind, String username, Category category, int value,
+                         Map<String, Integer> scores) {
+        if (spectatorFeed != null && spectatorFeed.hasSubscribers()) {
+            spectatorFeed.publish(kind, spectatorRound(), username, category, value, scores);
+        }
+    }
+
+    private void publishAnswerProgress(PlayerHandler player, Round round) {
+        if (spectatorFeed != null && spectatorFeed.hasSubscribers()) {
+            publish(SpectatorEvent.Kind.ANSWER_PROGRESS, player.getUsername(), null,
+                    round.getAnsweredCount(seatOf(player)), namedScores(round.getScore(0), round.getScore(1)));
+        }
+    }
+
+    // The round index moves past the last round when the game ends.
+    private int spectatorRound() {
+        return Math.min(currentRoundIndex + 1, rounds.size());
+    }
+
+    private Map<String, Integer> namedScores(int player1Score, int player2Score) {
+        Map<String, Integer> scores = new LinkedHashMap<>(4);
+        scores.put(player1.getUsername(), player1Score);
+        scores.put(player2.getUsername(), player2Score);
+        return scores;
     }
 
     private void handlePlayerForfeit(PlayerHandler forfeitingPlayer) throws IOException {
+        cancelPendingTasks();
+        forfeitSeat = seatOf(forfeitingPlayer);
         PlayerHandler winner = (forfeitingPlayer == player1) ? player2 : player1;
         Map<PlayerHandler, Integer> finalScores = new HashMap<>();
         finalScores.put(winner, 1);
@@ -70,32 +315,53 @@ public class Game {
         PlayerHandler categoryChooser = player1Turn ? player1 : player2;
         List<Category> randomCategories = Category.randomCategories();
 
+        offeredCategories = randomCategories;
         Message categoryChoiceMessage = new Message(MessageType.CATEGORY_SELECTED, randomCategories);
         categoryChooser.sendMessage(categoryChoiceMessage);
     }
 
 
-    public void handleCategorySelection(PlayerHandler player, Category selectedCategory) {
+    private void handleCategorySelection(PlayerHandler player, Category selectedCategory) {
         List<Question> questions = questionDB.getQuestionsForRound(selectedCategory, properties.getQuestionsPerRound());
 
+        offeredCategories = null;
         Round currentRound = new Round(questions, selectedCategory);
         rounds.set(currentRoundIndex, currentRound);
+        roundStartedAt = System.nanoTime();
+        publish(SpectatorEvent.Kind.CATEGORY_CHOSEN, player.getUsername(), selectedCategory, 0, null);
+        publish(SpectatorEvent.Kind.ROUND_START, null, selectedCategory, questions.size(), null);
 
+        Message roundStartMessage = new Message(MessageType.ROUND_START, questions);
+        roundStart = new Broadcast(roundStartMessage); // until the frame is built, so a resume never sees a stale round
         try {
-            Message roundStartMessage = new Message(MessageType.ROUND_START, questions);
-            player1.sendMessage(roundStartMessage);
-            player2.sendMessage(roundStartMessage);
+            roundStart = new Broadcast(roundStartMessage, questionDB.getFragmentCache().roundStartFrame(questions));
+            roundStart.sendTo(player1, player2);
         } catch (IOException e) {
-            System.err.println("Error starting round with questions: " + e.getMessage());
+            Log.warn("Error starting round with questions: {}", e.getMessage());
         }
+        currentRound.markDelivered(System.nanoTime());
+        // the questions still have to reach the player and the first answer has to come back
+        armAnswerDeadline(player1, 2 * oneWayDelayNanos(player1));
+        armAnswerDeadline(player2, 2 * oneWayDelayNanos(player2));
     }
 
 
-    private void handleAnswer(PlayerHandler player, Message message) throws IOException {
+    // Answers are timed from when they arrived, less the network delay both ways, so a player on a slow link
+    // is not slower for it. The next deadline needs no credit: it is armed one trip after the client moved on
+    // to the next question, and that question's answer will take the same trip back.
+    private void handleAnswer(PlayerHandler player, Message message, long receivedAt) throws IOException {
+        if (finished) {
+            return;
+        }
         Round currentRound = rounds.get(currentRoundIndex);
         Answer answer = (Answer) message.getContent();
-        currentRound.recordAnswer(player, answer);
-        System.out.println("Recorded answer from " + player.getUsername() + " for question " + answer.getQuestionIndex());
+        long answeredAt = receivedAt - 2 * oneWayDelayNanos(player);
+        if (currentRound.recordAnswer(seatOf(player), answer.getQuestionIndex(), answer.getSelectedOption(),
+                answeredAt)) {
+            Log.debug("Recorded answer from {} for question {}", player.getUsername(), answer.getQuestionIndex());
+            publishAnswerProgress(player, currentRound);
+            armAnswerDeadline(player);
+        }
     }
 
     private void handleForfeit(PlayerHandler forfeitingPlayer) throws IOException {
@@ -107,100 +373,108 @@ public class Game {
         endGameWithResult(calculateGameResult());
     }
 
-    public synchronized void handleRoundComplete(PlayerHandler player) throws IOException {
+    private void handleRoundComplete(PlayerHandler player) throws IOException {
+        if (finished || currentRoundIndex >= rounds.size()) {
+            return;
+        }
         Round currentRound = rounds.get(currentRoundIndex);
-        System.out.println("Round complete signal from " + player.getUsername() +
-                " for round " + (currentRoundIndex + 1));
+        Log.debug("Round complete signal from {} for round {}", player.getUsername(), currentRoundIndex + 1);
 
         if (currentRound.isComplete()) {
-            System.out.println("Both players completed round " + (currentRoundIndex + 1));
+            Log.debug("Both players completed round {}", currentRoundIndex + 1);
+            server.getMetrics().roundDuration((System.nanoTime() - roundStartedAt) / 1_000_000);
             sendRoundResults();
 
             currentRoundIndex++;
             if (currentRoundIndex < rounds.size()) {
-                System.out.println("Starting next round after delay");
-                new Thread(() -> {
-                    try {
-                        Thread.sleep(3000);
-                        startNextRound();
-                    } catch (InterruptedException | IOException e) {
-                        e.printStackTrace();
-                    }
-                }).start();
+                Log.debug("Starting next round after delay");
+                scheduleTask("round-transition-" + currentRoundIndex, this::startNextRoundQuietly,
+                        properties.getRoundTransitionDelayMillis());
             } else {
-                System.out.println("All rounds complete, ending game");
+                Log.debug("All rounds complete, ending game");
                 endGameWithResult(calculateGameResult());
             }
         } else {
-            System.out.println("Waiting for other player to complete round");
+            Log.debug("Waiting for other player to complete round");
         }
     }
 
 
-    public void handleMessage(PlayerHandler player, Message message) throws IOException {
-        System.out.println("Handling message from " + player.getUsername() + ": " + message.getType());
-        switch (message.getType()) {
-            case FORFEIT -> handlePlayerForfeit(player);
-            case ROUND_COMPLETE -> handleRoundComplete(player);
-            case CATEGORY_SELECTED -> {
-                Category selectedCategory = (Category) message.getContent();
-                handleCategorySelection(player, selectedCategory);
+    // Called on the player's connection thread; the message is handled later on the game's mailbox, but timed
+    // from its arrival here.
+    public void handleMessage(PlayerHandler player, Message message) {
+        long receivedAt = System.nanoTime();
+        mailbox.send(() -> onMessage(player, message, receivedAt));
+    }
+
+    private void onMessage(PlayerHandler player, Message message, long receivedAt) {
+        Log.debug("Handling message from {}: {}", player.getUsername(), message.getType());
+        long start = System.nanoTime();
+        try {
+            switch (message.getType()) {
+                case FORFEIT -> handlePlayerForfeit(player);
+                case ROUND_COMPLETE -> handleRoundComplete(player);
+                case CATEGORY_SELECTED -> {
+                    Category selectedCategory = (Category) message.getContent();
+                    handleCategorySelection(player, selectedCategory);
+                }
+                case ANSWER -> handleAnswer(player, message, receivedAt);
+                default -> Log.warn("Unexpected message type: {}", message.getType());
             }
-            case ANSWER -> handleAnswer(player, message);
-            default -> System.out.println("Unexpected message type: " + message.getType());
+        } catch (IOException e) {
+            Log.warn("Error handling {} from {}: {}", message.getType(), player.getUsername(), e.getMessage());
+        } finally {
+            server.getMetrics().handlerLatency(System.nanoTime() - start);
         }
     }
 
     private void sendRoundResults() throws IOException {
         Round round = rounds.get(currentRoundIndex);
-        RoundResult result = round.getResult();
+        totalScores[0] += round.getScore(0);
+        totalScores[1] += round.getScore(1);
+        RoundResult result = new RoundResult(scoresOf(round.getScore(0), round.getScore(1)));
 
-        System.out.println("Sending round " + (currentRoundIndex + 1) + " results to players");
+        Log.debug("Sending round {} results to players", currentRoundIndex + 1);
         Message resultMessage = new Message(MessageType.ROUND_RESULT, result);
 
-        player1.sendMessage(resultMessage);
-        player2.sendMessage(resultMessage);
+        new Broadcast(resultMessage).sendTo(player1, player2);
+        publish(SpectatorEvent.Kind.ROUND_RESULT, null, null, 0, namedScores(totalScores[0], totalScores[1]));
 
         player1Turn = !player1Turn;
     }
 
-    private void calculateTotalScores(Map<PlayerHandler, Integer> totalScores) {
-        for (Round round : rounds) {
-            RoundResult roundResult = round.getResult();
-            Map<PlayerHandler, Integer> roundScores = roundResult.getPlayerScores();
-
-            for (Map.Entry<PlayerHandler, Integer> entry : roundScores.entrySet()) {
-                totalScores.merge(entry.getKey(), entry.getValue(), Integer::sum);
-            }
-        }
+    private Map<PlayerHandler, Integer> scoresOf(int player1Score, int player2Score) {
+        Map<PlayerHandler, Integer> scores = new HashMap<>(4);
+        scores.put(player1, player1Score);
+        scores.put(player2, player2Score);
+        return scores;
     }
 
+    // Totals are accumulated as each round's result is sent, so this is only a comparison.
     private GameResult calculateGameResult() {
-        Map<PlayerHandler, Integer> finalScores = new HashMap<>();
-        finalScores.put(player1, 0);
-        finalScores.put(player2, 0);
-
-        calculateTotalScores(finalScores);
-
-        PlayerHandler winner;
-        int player1Score = finalScores.get(player1);
-        int player2Score = finalScores.get(player2);
-
-        if (player1Score > player2Score) {
-            winner = player1;
-        } else if (player2Score > player1Score) {
-            winner = player2;
-        } else {
-            winner = null; // Tie
-        }
-
-        return new GameResult(finalScores, winner);
+        return GameResult.of(player1, totalScores[0], player2, totalScores[1]);
     }
 
     private void endGameWithResult(GameResult result) throws IOException {
-        System.out.println("Game ending");
+        if (finished) {
+            return;
+        }
+        Log.info("Game {} ending", id);
         Message gameEndMessage = new Message(MessageType.GAME_END, result);
-        player1.sendMessage(gameEndMessage);
-        player2.sendMessage(gameEndMessage);
+        new Broadcast(gameEndMessage).sendTo(player1, player2);
+        publish(SpectatorEvent.Kind.GAME_END, result.getWinnerUsername(), null, 0, result.getScores());
+
+        cancelPendingTasks();
+        finished = true;
+        server.getLeaderboard().submit(player1, player2, result);
+        GameJournal journal = server.getJournal();
+        if (journal != null) {
+            journal.append(id, player1, player2, rounds, result, forfeitSeat);
+        }
+        scheduler.schedule("game-" + id + "[" + getDescription() + "]-cleanup", () -> mailbox.send(() -> {
+            player1.clearCurrentGame(this);
+            player2.clearCurrentGame(this);
+            server.gameEnded(this);
+        }), properties.getGameCleanupDelayMillis());
     }
 }
\ No newline at end of file
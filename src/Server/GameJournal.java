@@ -0,0 +1,320 @@
+package Server;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+// Append-only journal of finished games. Game actors encode their record and queue it; one writer thread owns
+// the FileChannel and commits in groups: everything that arrives within the durability window is written with
+// a single fsync, so a game never waits for the disk and a burst of game ends costs one sync.
+// Segments are named journal-<n>.log and rolled over at a size limit; see JournalReader for the record layout.
+public class GameJournal implements Runnable {
+    static final int SEGMENT_MAGIC = 0x514A524E; // "QJRN"
+    static final short FORMAT_VERSION = 2; // 2 added the question content hash
+    static final int SEGMENT_HEADER_BYTES = 6;
+    static final int RECORD_HEADER_BYTES = 8; // payload length, CRC32 of the payload
+
+    private final Path directory;
+    private final long durabilityWindowNanos;
+    private final long segmentBytes;
+    private final LinkedBlockingQueue<byte[]> queue = new LinkedBlockingQueue<>();
+    private final List<byte[]> batch = new ArrayList<>();
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+    private final AtomicLong entries = new AtomicLong();
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final LatencyHistogram commitMicros = new LatencyHistogram();
+    private FileChannel channel;
+    private int segmentIndex;
+    private long segmentPosition;
+    private long committedPosition; // end of the last synced batch in the current segment
+    private Thread thread;
+    private volatile boolean started;
+    private volatile boolean running = true;
+
+    public GameJournal(Path directory, long durabilityWindowMillis, long segmentBytes) {
+        this.directory = directory;
+        this.durabilityWindowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, durabilityWindowMillis));
+        this.segmentBytes = Math.min(Math.max(segmentBytes, 1 << 16), 1L << 30);
+    }
+
+    // Opens the newest segment for appending, cutting off a record that was only partly written when the
+    // server last stopped, then starts the writer thread.
+    public void start() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> segments = JournalReader.segments(directory);
+        if (segments.isEmpty()) {
+            openSegment(1);
+        } else {
+            Path last = segments.get(segments.size() - 1);
+            JournalReader.Result scanned = JournalReader.scan(last, entry -> { });
+            long validEnd = scanned.getValidBytes();
+            segmentIndex = JournalReader.segmentIndexOf(last);
+            if (validEnd < SEGMENT_HEADER_BYTES || scanned.getFormatVersion() != FORMAT_VERSION) {
+                // not a segment this writer can append to, leave it for inspection or older readers
+                openSegment(segmentIndex + 1);
+            } else {
+                channel = FileChannel.open(last, StandardOpenOption.WRITE);
+                if (channel.size() > validEnd) {
+                    Log.warn("Truncating {} torn bytes at the end of {}", channel.size() - validEnd, last);
+                    channel.truncate(validEnd);
+                    channel.force(true);
+                }
+                segmentPosition = validEnd;
+                committedPosition = validEnd;
+                channel.position(validEnd);
+            }
+        }
+        thread = new Thread(this, "game-journal");
+        thread.setDaemon(true);
+        thread.start();
+        started = true;
+        Log.info("Game journal at {} (segment {}, durability window {} ms)", directory, segmentIndex,
+                TimeUnit.NANOSECONDS.toMillis(durabilityWindowNanos));
+    }
+
+    // Stops accepting new work once the queue is drained and syncs what is left; called from a shutdown hook.
+    public void close() {
+        running = false;
+        Thread writer = thread;
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Called on the game actor once the game is finished, so the rounds are no longer changing.
+    // Does nothing if the journal could not be started.
+    public void append(long gameId, PlayerHandler player1, PlayerHandler player2, List<Round> rounds,
+                       GameResult result, int forfeitSeat) {
+        if (!started) {
+            return;
+        }
+        byte[] record;
+        try {
+            record = encode(gameId, player1, player2, rounds, result, forfeitSeat);
+        } catch (IOException e) {
+            Log.error("Could not encode game " + gameId + " for the journal", e);
+            return;
+        }
+        queue.offer(record);
+    }
+
+    static byte[] encode(long gameId, PlayerHandler player1, PlayerHandler player2, List<Round> rounds,
+                         GameResult result, int forfeitSeat) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0); // payload length, filled in below
+        out.writeInt(0); // CRC32
+        out.writeLong(gameId);
+        out.writeLong(System.currentTimeMillis());
+        writeString(out, player1.getUsername());
+        writeString(out, player2.getUsername());
+        out.writeInt(result.getScores().getOrDefault(player1.getUsername(), 0));
+        out.writeInt(result.getScores().getOrDefault(player2.getUsername(), 0));
+        String winner = result.getWinnerUsername();
+        out.writeByte(winner == null ? -1 : winner.equals(player1.getUsername()) ? 0 : 1);
+        out.writeByte(forfeitSeat);
+
+        int played = 0;
+        for (Round round : rounds) {
+            if (round.getQuestionCount() > 0) {
+                played++;
+            }
+        }
+        out.writeByte(played);
+        for (Round round : rounds) {
+            int questionCount = round.getQuestionCount();
+            if (questionCount == 0) {
+                continue; // never started
+            }
+            out.writeByte(round.getCategory().ordinal());
+            out.writeByte(questionCount);
+            for (int q = 0; q < questionCount; q++) {
+                Question question = round.getQuestions().get(q);
+                out.writeInt(question.getId());
+                out.writeLong(question.getContentHash());
+                out.writeByte(question.getCorrectOptionIndex());
+                for (int seat = 0; seat < Round.SEATS; seat++) {
+                    out.writeByte(round.getSelectedOption(seat, q));
+                    out.writeInt(round.getAnswerMillis(seat, q));
+                }
+            }
+        }
+        out.flush();
+
+        byte[] record = bytes.toByteArray();
+        int payloadLength = record.length - RECORD_HEADER_BYTES;
+        CRC32 crc = new CRC32();
+        crc.update(record, RECORD_HEADER_BYTES, payloadLength);
+        ByteBuffer header = ByteBuffer.wrap(record);
+        header.putInt(payloadLength);
+        header.putInt((int) crc.getValue());
+        return record;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(utf8.length);
+        out.write(utf8);
+    }
+
+    @Override
+    public void run() {
+        while (running || !queue.isEmpty()) {
+            try {
+                byte[] first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // group commit: keep collecting until the oldest record in the batch has waited a full window
+                long deadline = System.nanoTime() + durabilityWindowNanos;
+                byte[] next;
+                long remaining;
+                while (running && (remaining = deadline - System.nanoTime()) > 0
+                        && (next = queue.poll(remaining, TimeUnit.NANOSECONDS)) != null) {
+                    batch.add(next);
+                    queue.drainTo(batch);
+                }
+                queue.drainTo(batch);
+                commit();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                // the batch is lost, but later games can still be journalled
+                Log.error("Could not write " + batch.size() + " games to the journal", e);
+            } finally {
+                batch.clear();
+            }
+        }
+        closeChannel();
+    }
+
+    private void commit() throws IOException {
+        try {
+            writeBatch();
+        } catch (IOException e) {
+            rollBack();
+            throw e;
+        }
+    }
+
+    private void writeBatch() throws IOException {
+        long start = System.nanoTime();
+        long written = 0;
+        for (byte[] record : batch) {
+            if (segmentPosition + buffer.position() + record.length > segmentBytes
+                    && segmentPosition + buffer.position() > SEGMENT_HEADER_BYTES) {
+                written += flushBuffer();
+                rotate();
+            }
+            if (record.length > buffer.remaining()) {
+                written += flushBuffer();
+            }
+            if (record.length > buffer.capacity()) {
+                written += writeFully(ByteBuffer.wrap(record));
+            } else {
+                buffer.put(record);
+            }
+        }
+        written += flushBuffer();
+        channel.force(false);
+        committedPosition = segmentPosition;
+        entries.addAndGet(batch.size());
+        commits.incrementAndGet();
+        bytesWritten.addAndGet(written);
+        commitMicros.record((System.nanoTime() - start) / 1000);
+    }
+
+    // Cuts a partly written batch off the segment so the next commit does not append after a torn record.
+    private void rollBack() {
+        buffer.clear();
+        try {
+            channel.truncate(committedPosition);
+            channel.position(committedPosition);
+            segmentPosition = committedPosition;
+        } catch (IOException e) {
+            Log.warn("Could not roll the game journal back to {}: {}", committedPosition, e.getMessage());
+        }
+    }
+
+    private long flushBuffer() throws IOException {
+        buffer.flip();
+        long written = writeFully(buffer);
+        buffer.clear();
+        return written;
+    }
+
+    private long writeFully(ByteBuffer source) throws IOException {
+        long written = 0;
+        while (source.hasRemaining()) {
+            written += channel.write(source);
+        }
+        segmentPosition += written;
+        return written;
+    }
+
+    private void rotate() throws IOException {
+        channel.force(false);
+        channel.close();
+        openSegment(segmentIndex + 1);
+        Log.info("Game journal rolled over to segment {}", segmentIndex);
+    }
+
+    private void openSegment(int index) throws IOException {
+        Path segment = JournalReader.segmentPath(directory, index);
+        channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_BYTES);
+        header.putInt(SEGMENT_MAGIC).putShort(FORMAT_VERSION).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        channel.force(true);
+        segmentIndex = index;
+        segmentPosition = SEGMENT_HEADER_BYTES;
+        committedPosition = SEGMENT_HEADER_BYTES;
+    }
+
+    private void closeChannel() {
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            Log.warn("Could not close the game journal: {}", e.getMessage());
+        }
+    }
+
+    public long getEntryCount() {
+        return entries.get();
+    }
+
+    public long getCommitCount() {
+        return commits.get();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    public LatencyHistogram getCommitMicros() {
+        return commitMicros;
+    }
+}
@@ -1,6 +1,8 @@
 package Server;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 public class GameProperties {
@@ -37,4 +39,232 @@ public class GameProperties {
     public int getAnswerTimeoutSeconds() {
         return Integer.parseInt(properties.getProperty("answer.timeout.seconds"));
     }
+
+    // "blocking" keeps one thread per connection, "nio" serves all connections from a few selector threads
+    public String getServerMode() {
+        return properties.getProperty("server.mode", "blocking").trim();
+    }
+
+    public int getNioEventLoopThreads() {
+        return Integer.parseInt(properties.getProperty("nio.event.loop.threads",
+                String.valueOf(Math.max(1, Runtime.getRuntime().availableProcessors() / 2))));
+    }
+
+    // "platform" or "virtual": which kind of thread runs connections, games and round transitions
+    public String getExecutionMode() {
+        return properties.getProperty("execution.mode", "platform").trim();
+    }
+
+    public int getOutboundQueueCapacity() {
+        return Integer.parseInt(properties.getProperty("outbound.queue.capacity", "256"));
+    }
+
+    // What happens when a client's outbound queue is full: "drop", "disconnect" or "block". Only threads that
+    // serve a single client wait under "block"; threads shared by many clients disconnect instead, see OutboundQueue
+    public String getOutboundBackpressurePolicy() {
+        return properties.getProperty("outbound.backpressure", "disconnect").trim();
+    }
+
+    public int getOutboundReportIntervalSeconds() {
+        return Integer.parseInt(properties.getProperty("outbound.report.interval.seconds", "30"));
+    }
+
+    public int getSchedulerThreads() {
+        return Integer.parseInt(properties.getProperty("scheduler.threads", "2"));
+    }
+
+    // Pause between GAME_START and the first category choice
+    public long getGameStartDelayMillis() {
+        return Long.parseLong(properties.getProperty("game.start.delay.ms", "0"));
+    }
+
+    // Pause between the results of one round and the category choice of the next
+    public long getRoundTransitionDelayMillis() {
+        return Long.parseLong(properties.getProperty("round.transition.delay.ms", "3000"));
+    }
+
+    // How long a finished game stays registered before it is released
+    public long getGameCleanupDelayMillis() {
+        return Long.parseLong(properties.getProperty("game.cleanup.delay.ms", "5000"));
+    }
+
+    // Extra time on top of answer.timeout.seconds for the client's question transition and network delay
+    public long getAnswerDeadlineGraceMillis() {
+        return Long.parseLong(properties.getProperty("answer.deadline.grace.ms", "2000"));
+    }
+
+    public long getDeadlineTickMillis() {
+        return Long.parseLong(properties.getProperty("deadline.tick.ms", "100"));
+    }
+
+    public int getDeadlineWheelSize() {
+        return Integer.parseInt(properties.getProperty("deadline.wheel.size", "512"));
+    }
+
+    // DEBUG logs every message and answer, INFO only connection and game lifecycle events
+    public String getLogLevel() {
+        return properties.getProperty("log.level", "INFO").trim();
+    }
+
+    public String getLogFile() {
+        return properties.getProperty("log.file", "server.log").trim();
+    }
+
+    public long getLogMaxBytes() {
+        return Long.parseLong(properties.getProperty("log.max.bytes", String.valueOf(10 * 1024 * 1024)));
+    }
+
+    public int getLogMaxFiles() {
+        return Integer.parseInt(properties.getProperty("log.max.files", "5"));
+    }
+
+    public boolean isLogConsole() {
+        return Boolean.parseBoolean(properties.getProperty("log.console", "true").trim());
+    }
+
+    // Comma separated CSV files that together make up the question bank
+    public List<String> getQuestionSources() {
+        List<String> sources = new ArrayList<>();
+        for (String source : properties.getProperty("questions.sources", "questions.csv").split(",")) {
+            if (!source.isBlank()) {
+                sources.add(source.trim());
+            }
+        }
+        return sources;
+    }
+
+    // Rebuild the question bank in the background when one of the sources changes
+    public boolean isQuestionsWatchEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("questions.watch", "true").trim());
+    }
+
+    // Quiet period after the last change to a source before reloading, so a file being written is read once
+    public long getQuestionsReloadDebounceMillis() {
+        return Long.parseLong(properties.getProperty("questions.reload.debounce.ms", "500"));
+    }
+
+    // Players are kept in rating buckets of this width; ratings are clamped to 0..4000
+    public int getMatchmakingBucketWidth() {
+        return Integer.parseInt(properties.getProperty("matchmaking.bucket.width", "100"));
+    }
+
+    // Largest rating difference accepted for a player who just joined
+    public int getMatchmakingInitialWindow() {
+        return Integer.parseInt(properties.getProperty("matchmaking.window.initial", "100"));
+    }
+
+    public int getMatchmakingWindowGrowthPerSecond() {
+        return Integer.parseInt(properties.getProperty("matchmaking.window.growth.per.second", "50"));
+    }
+
+    public int getMatchmakingMaxWindow() {
+        return Integer.parseInt(properties.getProperty("matchmaking.window.max", "1000"));
+    }
+
+    public long getMatchmakingTickMillis() {
+        return Long.parseLong(properties.getProperty("matchmaking.tick.ms", "100"));
+    }
+
+    // Threads shared by all game actors in platform mode
+    public int getGameActorThreads() {
+        return Integer.parseInt(properties.getProperty("game.actor.threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+    }
+
+    // Port of the local Prometheus endpoint (loopback only), 0 disables it
+    public int getMetricsHttpPort() {
+        return Integer.parseInt(properties.getProperty("metrics.http.port", "9404"));
+    }
+
+    public boolean isMetricsJmxEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("metrics.jmx", "true").trim());
+    }
+
+    // Elo K-factor: the most a rating can move in one game
+    public int getLeaderboardKFactor() {
+        return Integer.parseInt(properties.getProperty("leaderboard.k.factor", "32"));
+    }
+
+    public String getLeaderboardSnapshotFile() {
+        return properties.getProperty("leaderboard.snapshot.file", "leaderboard.snapshot").trim();
+    }
+
+    // How often the leaderboard is written to disk if it changed, 0 disables snapshots
+    public int getLeaderboardSnapshotIntervalSeconds() {
+        return Integer.parseInt(properties.getProperty("leaderboard.snapshot.interval.seconds", "60"));
+    }
+
+    public boolean isJournalEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("journal.enabled", "true").trim());
+    }
+
+    public String getJournalDirectory() {
+        return properties.getProperty("journal.directory", "journal").trim();
+    }
+
+    // Longest a finished game waits to be synced to disk; games ending within one window share an fsync
+    public long getJournalDurabilityWindowMillis() {
+        return Long.parseLong(properties.getProperty("journal.durability.window.ms", "50").trim());
+    }
+
+    public long getJournalSegmentBytes() {
+        return Long.parseLong(properties.getProperty("journal.segment.bytes", "67108864").trim());
+    }
+
+    // How long a dropped player's seat is kept for a RESUME before the game is forfeited, 0 forfeits at once
+    public long getSessionResumeGraceMillis() {
+        return Long.parseLong(properties.getProperty("session.resume.grace.seconds", "30").trim()) * 1000;
+    }
+
+    // Nodes of a cluster run from the same directory, so each gets its own metrics port and its own log,
+    // leaderboard snapshot and journal files.
+    public void applyClusterNode(ClusterConfig.Node node) {
+        String suffix = "-node" + node.getId();
+        properties.setProperty("metrics.http.port", String.valueOf(node.getMetricsPort()));
+        if (!getLogFile().isEmpty()) {
+            properties.setProperty("log.file", withSuffix(getLogFile(), suffix));
+        }
+        properties.setProperty("leaderboard.snapshot.file", withSuffix(getLeaderboardSnapshotFile(), suffix));
+        properties.setProperty("journal.directory", getJournalDirectory() + suffix);
+    }
+
+    private static String withSuffix(String file, String suffix) {
+        int dot = file.lastIndexOf('.');
+        return dot > 0 ? file.substring(0, dot) + suffix + file.substring(dot) : file + suffix;
+    }
+
+    public int getSpectatorFanoutThreads() {
+        return Integer.parseInt(properties.getProperty("spectator.fanout.threads", "1").trim());
+    }
+
+    // Events kept per game for spectators; one that falls further behind skips ahead
+    public int getSpectatorRingCapacity() {
+        return Integer.parseInt(properties.getProperty("spectator.ring.capacity", "256").trim());
+    }
+
+    // Encoded questions kept per bank for building ROUND_START frames, least recently used evicted first
+    public int getQuestionFragmentCacheEntries() {
+        return Integer.parseInt(properties.getProperty("questions.fragment.cache.entries", "65536").trim());
+    }
+
+    // How often the server pings every connection, for liveness and RTT; 0 disables pings and reaping
+    public long getHeartbeatIntervalMillis() {
+        return Long.parseLong(properties.getProperty("heartbeat.interval.seconds", "10").trim()) * 1000;
+    }
+
+    // A connection that sends nothing, not even a PONG, for this long is closed
+    public long getIdleTimeoutMillis() {
+        return Long.parseLong(properties.getProperty("connection.idle.timeout.seconds", "35").trim()) * 1000;
+    }
+
+    // The same before the first frame: clients connect when they start and log in when the user is ready,
+    // and are not pinged until then; 0 never closes them
+    public long getLoginTimeoutMillis() {
+        return Long.parseLong(properties.getProperty("connection.login.timeout.seconds", "1800").trim()) * 1000;
+    }
+
+    // Most network delay credited per direction on answer deadlines and answer times
+    public long getRttCreditMaxMillis() {
+        return Long.parseLong(properties.getProperty("rtt.credit.max.ms", "1000").trim());
+    }
 }
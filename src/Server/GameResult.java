@@ -10,7 +10,7 @@ public class GameResult implements Serializable {
 
     private final Map<String, Integer> scores;
     private final String winnerUsername;
-    private final Map<PlayerHandler, Integer> playerScores; // For server-side use
+    private final transient Map<PlayerHandler, Integer> playerScores; // For server-side use
 
     public GameResult(Map<PlayerHandler, Integer> finalScores, PlayerHandler winner) {
         this.playerScores = new HashMap<>(finalScores);
@@ -21,6 +21,33 @@ public class GameResult implements Serializable {
         this.winnerUsername = winner != null ? winner.getUsername() : null;
     }
 
+    private GameResult(Map<String, Integer> scores, String winnerUsername) {
+        this.scores = scores;
+        this.winnerUsername = winnerUsername;
+        this.playerScores = Collections.emptyMap();
+    }
+
+    // Final tally of a two-player game: the higher score wins, equal scores are a tie.
+    public static GameResult of(PlayerHandler player1, int player1Score, PlayerHandler player2, int player2Score) {
+        PlayerHandler winner;
+        if (player1Score > player2Score) {
+            winner = player1;
+        } else if (player2Score > player1Score) {
+            winner = player2;
+        } else {
+            winner = null; // Tie
+        }
+        Map<PlayerHandler, Integer> finalScores = new HashMap<>(4);
+        finalScores.put(player1, player1Score);
+        finalScores.put(player2, player2Score);
+        return new GameResult(finalScores, winner);
+    }
+
+    // Rebuilds a result on the client from the scores sent over the wire.
+    public static GameResult fromScores(Map<String, Integer> scores, String winnerUsername) {
+        return new GameResult(scores, winnerUsername);
+    }
+
     public Map<String, Integer> getScores() {
         return scores;
     }
@@ -0,0 +1,56 @@
+package Server;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Shared, bounded pool for delayed game actions (round pauses, countdowns, cleanup) and periodic server jobs.
+// Replaces one sleeping thread per delay; cancelled tasks are removed from the queue immediately.
+public class GameScheduler {
+    private final ScheduledThreadPoolExecutor executor;
+
+    public GameScheduler(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(Math.max(1, threads), task -> {
+            Thread thread = new Thread(() -> {
+                OutboundQueue.markSharedThread(true);
+                task.run();
+            }, "game-scheduler-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    public ScheduledFuture<?> schedule(String name, Runnable task, long delayMillis) {
+        return executor.schedule(named(name, task), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public ScheduledFuture<?> scheduleAtFixedRate(String name, Runnable task, long periodMillis) {
+        return executor.scheduleAtFixedRate(named(name, task), periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public int getPendingTaskCount() {
+        return executor.getQueue().size();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // While a task runs the pool thread carries its name, so thread dumps still show which game it belongs to.
+    private static Runnable named(String name, Runnable task) {
+        return () -> {
+            Thread thread = Thread.currentThread();
+            String poolName = thread.getName();
+            thread.setName(poolName + " " + name);
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                Log.error("Scheduled task {} failed", name, e);
+            } finally {
+                thread.setName(poolName);
+            }
+        };
+    }
+}
@@ -0,0 +1,333 @@
+package Server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Sequential reader for the game journal, used by the writer to find where the last segment really ends and
+// for offline analytics. Each segment is memory-mapped and walked record by record; a record whose length runs
+// past the end of the file or whose CRC does not match marks the end of the valid data.
+//
+// Segment: magic (int), format version (short), then records.
+// Record:  payload length (int), CRC32 of the payload (int), payload:
+//          game id (long), end time millis (long), player 1, player 2 (short length + UTF-8),
+//          score 1, score 2 (int), winner seat (byte, -1 for a tie), forfeiting seat (byte, -1 for none),
+//          round count (byte), and per round: category ordinal (byte), question count (byte), and per question:
+//          question id (int), question content hash (long, since version 2), correct option (byte), then per
+//          seat: selected option (byte, see Round), millis from round start to the answer (int).
+// The id is only the question's position in the bank loaded at the time; the content hash identifies it across
+// reloads. Version 1 segments are still read, with a hash of 0.
+public class JournalReader {
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final Category[] CATEGORIES = Category.values();
+
+    public static final class Entry {
+        private final long gameId;
+        private final long endedAtMillis;
+        private final String[] usernames;
+        private final int[] scores;
+        private final int winnerSeat;
+        private final int forfeitSeat;
+        private final List<RoundEntry> rounds;
+
+        Entry(long gameId, long endedAtMillis, String[] usernames, int[] scores, int winnerSeat, int forfeitSeat,
+              List<RoundEntry> rounds) {
+            this.gameId = gameId;
+            this.endedAtMillis = endedAtMillis;
+            this.usernames = usernames;
+            this.scores = scores;
+            this.winnerSeat = winnerSeat;
+            this.forfeitSeat = forfeitSeat;
+            this.rounds = rounds;
+        }
+
+        public long getGameId() {
+            return gameId;
+        }
+
+        public long getEndedAtMillis() {
+            return endedAtMillis;
+        }
+
+        public String getUsername(int seat) {
+            return usernames[seat];
+        }
+
+        public int getScore(int seat) {
+            return scores[seat];
+        }
+
+        // -1 for a tie
+        public int getWinnerSeat() {
+            return winnerSeat;
+        }
+
+        // -1 unless the game ended with a forfeit or disconnect
+        public int getForfeitSeat() {
+            return forfeitSeat;
+        }
+
+        public List<RoundEntry> getRounds() {
+            return rounds;
+        }
+    }
+
+    public static final class RoundEntry {
+        private final Category category;
+        private final int[] questionIds;
+        private final long[] questionHashes;
+        private final int[] correctOptions;
+        private final int[] selectedOptions; // [seat * questionCount + questionIndex], as in Round
+        private final int[] answerMillis;
+
+        RoundEntry(Category category, int[] questionIds, long[] questionHashes, int[] correctOptions,
+                   int[] selectedOptions, int[] answerMillis) {
+            this.category = category;
+            this.questionIds = questionIds;
+            this.questionHashes = questionHashes;
+            this.correctOptions = correctOptions;
+            this.selectedOptions = selectedOptions;
+            this.answerMillis = answerMillis;
+        }
+
+        public Category getCategory() {
+            return category;
+        }
+
+        public int getQuestionCount() {
+            return questionIds.length;
+        }
+
+        public int getQuestionId(int questionIndex) {
+            return questionIds[questionIndex];
+        }
+
+        // Question.getContentHash() when the game was played, 0 in version 1 segments
+        public long getQuestionHash(int questionIndex) {
+            return questionHashes[questionIndex];
+        }
+
+        public int getCorrectOption(int questionIndex) {
+            return correctOptions[questionIndex];
+        }
+
+        public int getSelectedOption(int seat, int questionIndex) {
+            return selectedOptions[seat * questionIds.length + questionIndex];
+        }
+
+        public int getAnswerMillis(int seat, int questionIndex) {
+            return answerMillis[seat * questionIds.length + questionIndex];
+        }
+    }
+
+    public static final class Result {
+        private final long entries;
+        private final long validBytes;
+        private final long fileBytes;
+        private final int formatVersion;
+
+        Result(long entries, long validBytes, long fileBytes, int formatVersion) {
+            this.entries = entries;
+            this.validBytes = validBytes;
+            this.fileBytes = fileBytes;
+            this.formatVersion = formatVersion;
+        }
+
+        public long getEntries() {
+            return entries;
+        }
+
+        // Offset just past the last complete record, 0 if the segment header itself is missing or wrong.
+        public long getValidBytes() {
+            return validBytes;
+        }
+
+        public boolean isTorn() {
+            return validBytes < fileBytes;
+        }
+
+        // 0 if the segment header is missing or wrong
+        public int getFormatVersion() {
+            return formatVersion;
+        }
+    }
+
+    private JournalReader() {
+    }
+
+    public static Path segmentPath(Path directory, int index) {
+        return directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    public static int segmentIndexOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    // Segments in write order.
+    public static List<Path> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)
+                                && name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())
+                                .chars().allMatch(Character::isDigit);
+                    })
+                    .sorted(Comparator.comparingInt(JournalReader::segmentIndexOf))
+                    .toList();
+        }
+    }
+
+    // Reads every segment in order. A torn tail is only expected in the newest segment.
+    public static long readAll(Path directory, Consumer<Entry> consumer) throws IOException {
+        long total = 0;
+        for (Path segment : segments(directory)) {
+            Result result = scan(segment, consumer);
+            if (result.isTorn()) {
+                Log.warn("{} has {} unreadable bytes after {} games", segment,
+                        Files.size(segment) - result.getValidBytes(), result.getEntries());
+            }
+            total += result.getEntries();
+        }
+        return total;
+    }
+
+    public static Result scan(Path segment, Consumer<Entry> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < GameJournal.SEGMENT_HEADER_BYTES) {
+                return new Result(0, 0, size, 0);
+            }
+            // segments are capped well below 2 GB, so one mapping covers the file
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != GameJournal.SEGMENT_MAGIC) {
+                return new Result(0, 0, size, 0);
+            }
+            int version = buffer.getShort();
+            if (version < 1 || version > GameJournal.FORMAT_VERSION) {
+                return new Result(0, 0, size, 0);
+            }
+            CRC32 crc = new CRC32();
+            long entries = 0;
+            while (buffer.remaining() >= GameJournal.RECORD_HEADER_BYTES) {
+                int start = buffer.position();
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    buffer.position(start);
+                    break;
+                }
+                ByteBuffer payload = buffer.slice(buffer.position(), length);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    buffer.position(start);
+                    break;
+                }
+                consumer.accept(decode(payload, version));
+                buffer.position(buffer.position() + length);
+                entries++;
+            }
+            return new Result(entries, buffer.position(), size, version);
+        }
+    }
+
+    private static Entry decode(ByteBuffer in, int version) {
+        long gameId = in.getLong();
+        long endedAtMillis = in.getLong();
+        String[] usernames = {readString(in), readString(in)};
+        int[] scores = {in.getInt(), in.getInt()};
+        int winnerSeat = in.get();
+        int forfeitSeat = in.get();
+        int roundCount = in.get();
+        List<RoundEntry> rounds = new ArrayList<>(roundCount);
+        for (int r = 0; r < roundCount; r++) {
+            Category category = CATEGORIES[in.get()];
+            int questionCount = in.get();
+            int[] questionIds = new int[questionCount];
+            long[] questionHashes = new long[questionCount];
+            int[] correctOptions = new int[questionCount];
+            int[] selectedOptions = new int[Round.SEATS * questionCount];
+            int[] answerMillis = new int[Round.SEATS * questionCount];
+            for (int q = 0; q < questionCount; q++) {
+                questionIds[q] = in.getInt();
+                questionHashes[q] = version >= 2 ? in.getLong() : 0;
+                correctOptions[q] = in.get();
+                for (int seat = 0; seat < Round.SEATS; seat++) {
+                    selectedOptions[seat * questionCount + q] = in.get();
+                    answerMillis[seat * questionCount + q] = in.getInt();
+                }
+            }
+            rounds.add(new RoundEntry(category, questionIds, questionHashes, correctOptions, selectedOptions,
+                    answerMillis));
+        }
+        return new Entry(gameId, endedAtMillis, usernames, scores, winnerSeat, forfeitSeat, rounds);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] utf8 = new byte[in.getShort() & 0xFFFF];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    // Summary of a journal directory: outcomes, and per category how often questions were answered correctly
+    // and how long answers took.
+    // Usage: java Server.JournalReader [directory]
+    public static void main(String[] args) throws IOException {
+        Path directory = Path.of(args.length > 0 ? args[0] : new GameProperties().getJournalDirectory());
+        long[] outcomes = new long[3]; // decided, tied, forfeited
+        long[] answered = new long[CATEGORIES.length];
+        long[] correct = new long[CATEGORIES.length];
+        long[] timedOut = new long[CATEGORIES.length];
+        LatencyHistogram[] answerMillis = new LatencyHistogram[CATEGORIES.length];
+        for (int i = 0; i < answerMillis.length; i++) {
+            answerMillis[i] = new LatencyHistogram();
+        }
+
+        long start = System.nanoTime();
+        long games = readAll(directory, entry -> {
+            outcomes[entry.getForfeitSeat() >= 0 ? 2 : entry.getWinnerSeat() >= 0 ? 0 : 1]++;
+            for (RoundEntry round : entry.getRounds()) {
+                int c = round.getCategory().ordinal();
+                for (int q = 0; q < round.getQuestionCount(); q++) {
+                    for (int seat = 0; seat < Round.SEATS; seat++) {
+                        int selected = round.getSelectedOption(seat, q);
+                        if (selected == Round.NOT_ANSWERED) {
+                            continue;
+                        }
+                        if (selected == Round.TIMED_OUT) {
+                            timedOut[c]++;
+                            continue;
+                        }
+                        answered[c]++;
+                        if (selected == round.getCorrectOption(q)) {
+                            correct[c]++;
+                        }
+                        answerMillis[c].record(round.getAnswerMillis(seat, q));
+                    }
+                }
+            }
+        });
+        System.out.printf("%d games read from %s in %d ms: %d decided, %d tied, %d forfeited%n", games, directory,
+                (System.nanoTime() - start) / 1_000_000, outcomes[0], outcomes[1], outcomes[2]);
+        System.out.printf("%-12s %10s %9s %10s %10s %10s%n", "category", "answers", "correct", "timeouts",
+                "p50 (ms)", "p90 (ms)");
+        for (Category category : CATEGORIES) {
+            int c = category.ordinal();
+            System.out.printf("%-12s %10d %8.1f%% %10d %10d %10d%n", category, answered[c],
+                    answered[c] == 0 ? 0.0 : 100.0 * correct[c] / answered[c], timedOut[c],
+                    answerMillis[c].getPercentile(0.5), answerMillis[c].getPercentile(0.9));
+        }
+    }
+}
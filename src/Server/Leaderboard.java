@@ -0,0 +1,268 @@
+package Server;
+
+import Pojos.Message;
+import Pojos.MessageType;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Global Elo ratings. Finished games are queued by the game actors and applied by one leaderboard thread, so a
+// game never waits for ranking work. Standings are kept in a skip list ordered by rating for top-K queries,
+// and a Fenwick tree counts players per rating value so a player's rank is two O(log) lookups.
+// Ratings are whole numbers clamped to 0..4000, the same range the matchmaker buckets.
+public class Leaderboard implements Runnable {
+    public static final int INITIAL_RATING = 1000;
+    public static final int MAX_RATING = 4000;
+    private static final int SNAPSHOT_MAGIC = 0x51554C42; // "QULB"
+
+    private final int kFactor;
+    private final Path snapshotFile;
+    private final LinkedBlockingQueue<FinishedGame> inbox = new LinkedBlockingQueue<>();
+    private final ConcurrentHashMap<String, Standing> standings = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Standing> ordered = new ConcurrentSkipListSet<>(Standing.ORDER);
+    private final RatingCounts counts = new RatingCounts(MAX_RATING);
+    private final AtomicLong gamesRated = new AtomicLong();
+    private volatile boolean dirty;
+
+    // Immutable, so the skip list can hold it safely: a rating change replaces the entry.
+    public static final class Standing {
+        static final Comparator<Standing> ORDER = Comparator.comparingInt((Standing s) -> -s.rating)
+                .thenComparing(s -> s.username);
+
+        private final String username;
+        private final int rating;
+        private final int games;
+
+        Standing(String username, int rating, int games) {
+            this.username = username;
+            this.rating = rating;
+            this.games = games;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public int getRating() {
+            return rating;
+        }
+
+        public int getGames() {
+            return games;
+        }
+    }
+
+    private static final class FinishedGame {
+        final PlayerHandler player1;
+        final PlayerHandler player2;
+        final String winnerUsername;
+
+        FinishedGame(PlayerHandler player1, PlayerHandler player2, String winnerUsername) {
+            this.player1 = player1;
+            this.player2 = player2;
+            this.winnerUsername = winnerUsername;
+        }
+    }
+
+    // Fenwick tree over rating values; reads are lock-free and may briefly miss an update in progress.
+    private static final class RatingCounts {
+        private final AtomicLongArray tree;
+
+        RatingCounts(int maxRating) {
+            this.tree = new AtomicLongArray(maxRating + 2);
+        }
+
+        void add(int rating, long delta) {
+            for (int i = rating + 1; i < tree.length(); i += i & -i) {
+                tree.addAndGet(i, delta);
+            }
+        }
+
+        long countAtMost(int rating) {
+            long sum = 0;
+            for (int i = rating + 1; i > 0; i -= i & -i) {
+                sum += tree.get(i);
+            }
+            return sum;
+        }
+    }
+
+    public Leaderboard(int kFactor, Path snapshotFile) {
+        this.kFactor = kFactor;
+        this.snapshotFile = snapshotFile;
+    }
+
+    public void start() {
+        Thread thread = new Thread(this, "leaderboard");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Called from the game actor once GAME_END has been sent.
+    public void submit(PlayerHandler player1, PlayerHandler player2, GameResult result) {
+        inbox.offer(new FinishedGame(player1, player2, result.getWinnerUsername()));
+    }
+
+    @Override
+    public void run() {
+        OutboundQueue.markSharedThread(true); // sends rank updates to every player
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                apply(inbox.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                Log.error("Leaderboard update failed", e);
+            }
+        }
+    }
+
+    private void apply(FinishedGame game) {
+        String name1 = game.player1.getUsername();
+        String name2 = game.player2.getUsername();
+        Standing before1 = standingOf(name1);
+        Standing before2 = standingOf(name2);
+
+        double expected1 = 1.0 / (1.0 + Math.pow(10, (before2.rating - before1.rating) / 400.0));
+        double score1 = game.winnerUsername == null ? 0.5 : game.winnerUsername.equals(name1) ? 1.0 : 0.0;
+        int change1 = (int) Math.round(kFactor * (score1 - expected1));
+
+        Standing after1 = update(before1, change1);
+        Standing after2 = update(before2, -change1);
+        gamesRated.incrementAndGet();
+        dirty = true;
+
+        notify(game.player1, after1, after1.rating - before1.rating);
+        notify(game.player2, after2, after2.rating - before2.rating);
+    }
+
+    private Standing standingOf(String username) {
+        Standing standing = standings.get(username);
+        if (standing == null) {
+            standing = new Standing(username, INITIAL_RATING, 0);
+            standings.put(username, standing);
+            ordered.add(standing);
+            counts.add(standing.rating, 1);
+        }
+        return standing;
+    }
+
+    private Standing update(Standing before, int change) {
+        int rating = Math.max(0, Math.min(MAX_RATING, before.rating + change));
+        Standing after = new Standing(before.username, rating, before.games + 1);
+        ordered.remove(before);
+        counts.add(before.rating, -1);
+        standings.put(after.username, after);
+        ordered.add(after);
+        counts.add(after.rating, 1);
+        return after;
+    }
+
+    private void notify(PlayerHandler player, Standing standing, int change) {
+        player.setRating(standing.rating);
+        RankUpdate update = new RankUpdate(standing.username, standing.rating, change, rankOf(standing.rating), size());
+        try {
+            player.sendMessage(new Message(MessageType.RANK_UPDATE, update));
+        } catch (IOException e) {
+            Log.debug("Could not send rank update to {}: {}", standing.username, e.getMessage());
+        }
+    }
+
+    public int getRating(String username) {
+        Standing standing = standings.get(username);
+        return standing == null ? INITIAL_RATING : standing.rating;
+    }
+
+    // 1 + number of players with a strictly higher rating; players with equal ratings share a rank.
+    public int rankOf(String username) {
+        Standing standing = standings.get(username);
+        return standing == null ? -1 : rankOf(standing.rating);
+    }
+
+    private int rankOf(int rating) {
+        long total = counts.countAtMost(MAX_RATING);
+        return (int) (total - counts.countAtMost(rating)) + 1;
+    }
+
+    public List<Standing> topK(int k) {
+        List<Standing> top = new ArrayList<>(Math.min(k, 1024));
+        for (Standing standing : ordered) {
+            if (top.size() == k) {
+                break;
+            }
+            top.add(standing);
+        }
+        return top;
+    }
+
+    public int size() {
+        return standings.size();
+    }
+
+    public long getGamesRated() {
+        return gamesRated.get();
+    }
+
+    // Binary snapshot: magic, count, then (username, rating, games) per player. Written to a temporary file
+    // and moved into place, so a crash mid-write never leaves a truncated snapshot behind.
+    // Synchronized because the scheduler and the shutdown hook can both save at once and share the temporary file.
+    public synchronized void saveSnapshot() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        long start = System.nanoTime();
+        List<Standing> entries = new ArrayList<>(standings.values());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(entries.size());
+            for (Standing standing : entries) {
+                out.writeUTF(standing.username);
+                out.writeShort(standing.rating);
+                out.writeInt(standing.games);
+            }
+        } catch (IOException e) {
+            dirty = true;
+            Log.warn("Could not write leaderboard snapshot: {}", e.getMessage());
+            return;
+        }
+        try {
+            Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Log.info("Leaderboard snapshot of {} players written in {} ms", entries.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            dirty = true;
+            Log.warn("Could not replace leaderboard snapshot: {}", e.getMessage());
+        }
+    }
+
+    // Called once before start().
+    public void loadSnapshot() {
+        if (!Files.exists(snapshotFile)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile), 1 << 16))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                Log.warn("{} is not a leaderboard snapshot, ignoring it", snapshotFile);
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                Standing standing = new Standing(in.readUTF(), in.readShort(), in.readInt());
+                standings.put(standing.username, standing);
+                ordered.add(standing);
+                counts.add(standing.rating, 1);
+            }
+            Log.info("Loaded {} leaderboard entries from {}", count, snapshotFile);
+        } catch (IOException e) {
+            Log.warn("Could not read leaderboard snapshot {}: {}", snapshotFile, e.getMessage());
+        }
+    }
+}
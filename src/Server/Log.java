@@ -0,0 +1,363 @@
+package Server;
+
+import java.io.*;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Server logging facade. Callers only check the level and copy the format string and arguments into a
+// lock-free ring buffer; a background thread does the formatting and writes to a rotating file (and stdout).
+// Messages use {} placeholders. Arguments are formatted later on the writer thread, so pass immutable values.
+public final class Log {
+    public enum Level {
+        DEBUG,
+        INFO,
+        WARN,
+        ERROR
+    }
+
+    private static final DateTimeFormatter TIMESTAMP =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private static volatile Level level = Level.INFO;
+    private static final RingBuffer buffer = new RingBuffer(8192);
+    private static final Writer writer = new Writer();
+
+    static {
+        Thread thread = new Thread(writer, "log-writer");
+        thread.setDaemon(true);
+        thread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(writer::drainAndClose, "log-shutdown"));
+    }
+
+    private Log() {
+    }
+
+    public static void configure(GameProperties properties) {
+        level = Level.valueOf(properties.getLogLevel().toUpperCase());
+        writer.configure(properties.getLogFile(), properties.getLogMaxBytes(), properties.getLogMaxFiles(),
+                properties.isLogConsole());
+    }
+
+    public static boolean isDebugEnabled() {
+        return level == Level.DEBUG;
+    }
+
+    public static boolean isEnabled(Level candidate) {
+        return candidate.ordinal() >= level.ordinal();
+    }
+
+    public static long getDroppedCount() {
+        return buffer.dropped.get();
+    }
+
+    public static void debug(String message) {
+        if (level == Level.DEBUG) buffer.publish(Level.DEBUG, message, null, null, null, 0, null);
+    }
+
+    public static void debug(String format, Object a) {
+        if (level == Level.DEBUG) buffer.publish(Level.DEBUG, format, a, null, null, 1, null);
+    }
+
+    public static void debug(String format, Object a, Object b) {
+        if (level == Level.DEBUG) buffer.publish(Level.DEBUG, format, a, b, null, 2, null);
+    }
+
+    public static void debug(String format, Object a, Object b, Object c) {
+        if (level == Level.DEBUG) buffer.publish(Level.DEBUG, format, a, b, c, 3, null);
+    }
+
+    public static void info(String message) {
+        if (isEnabled(Level.INFO)) buffer.publish(Level.INFO, message, null, null, null, 0, null);
+    }
+
+    public static void info(String format, Object a) {
+        if (isEnabled(Level.INFO)) buffer.publish(Level.INFO, format, a, null, null, 1, null);
+    }
+
+    public static void info(String format, Object a, Object b) {
+        if (isEnabled(Level.INFO)) buffer.publish(Level.INFO, format, a, b, null, 2, null);
+    }
+
+    public static void info(String format, Object a, Object b, Object c) {
+        if (isEnabled(Level.INFO)) buffer.publish(Level.INFO, format, a, b, c, 3, null);
+    }
+
+    // For periodic reports with more than three values; the array is only allocated at the call site.
+    public static void info(String format, Object... args) {
+        if (isEnabled(Level.INFO)) buffer.publish(Level.INFO, format, args, null);
+    }
+
+    public static void warn(String message) {
+        if (isEnabled(Level.WARN)) buffer.publish(Level.WARN, message, null, null, null, 0, null);
+    }
+
+    public static void warn(String format, Object a) {
+        if (isEnabled(Level.WARN)) buffer.publish(Level.WARN, format, a, null, null, 1, null);
+    }
+
+    public static void warn(String format, Object a, Object b) {
+        if (isEnabled(Level.WARN)) buffer.publish(Level.WARN, format, a, b, null, 2, null);
+    }
+
+    public static void warn(String format, Object a, Object b, Object c) {
+        if (isEnabled(Level.WARN)) buffer.publish(Level.WARN, format, a, b, c, 3, null);
+    }
+
+    public static void error(String message) {
+        buffer.publish(Level.ERROR, message, null, null, null, 0, null);
+    }
+
+    public static void error(String message, Throwable error) {
+        buffer.publish(Level.ERROR, message, null, null, null, 0, error);
+    }
+
+    public static void error(String format, Object a, Throwable error) {
+        buffer.publish(Level.ERROR, format, a, null, null, 1, error);
+    }
+
+    private static String format(Slot slot) {
+        if (slot.argCount == 0) {
+            return slot.format;
+        }
+        StringBuilder text = new StringBuilder(slot.format.length() + 32);
+        int arg = 0;
+        int from = 0;
+        int at;
+        while (arg < slot.argCount && (at = slot.format.indexOf("{}", from)) >= 0) {
+            text.append(slot.format, from, at);
+            text.append(slot.args != null ? slot.args[arg] : arg == 0 ? slot.a : arg == 1 ? slot.b : slot.c);
+            arg++;
+            from = at + 2;
+        }
+        text.append(slot.format, from, slot.format.length());
+        return text.toString();
+    }
+
+    private static final class Slot {
+        volatile long sequence = -1;
+        Level level;
+        long timeMillis;
+        String thread;
+        String format;
+        Object a;
+        Object b;
+        Object c;
+        Object[] args; // set instead of a, b and c when there are more than three
+        int argCount;
+        Throwable error;
+    }
+
+    // Multi-producer, single-consumer ring. Producers claim a sequence with a CAS, fill the slot and publish
+    // it by writing its sequence; the writer consumes slots in order. When the ring is full events are dropped
+    // and counted rather than blocking a game thread.
+    private static final class RingBuffer {
+        private final Slot[] slots;
+        private final int mask;
+        private final AtomicLong claimed = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private volatile long consumed;
+
+        RingBuffer(int capacity) {
+            int size = Integer.highestOneBit(capacity - 1) << 1;
+            this.slots = new Slot[size];
+            for (int i = 0; i < size; i++) {
+                slots[i] = new Slot();
+            }
+            this.mask = size - 1;
+        }
+
+        void publish(Level level, String format, Object a, Object b, Object c, int argCount, Throwable error) {
+            publish(level, format, a, b, c, null, argCount, error);
+        }
+
+        void publish(Level level, String format, Object[] args, Throwable error) {
+            publish(level, format, null, null, null, args, args.length, error);
+        }
+
+        private void publish(Level level, String format, Object a, Object b, Object c, Object[] args, int argCount,
+                             Throwable error) {
+            long sequence;
+            do {
+                sequence = claimed.get();
+                if (sequence - consumed >= slots.length) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+            } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+            Slot slot = slots[(int) (sequence & mask)];
+            slot.level = level;
+            slot.timeMillis = System.currentTimeMillis();
+            slot.thread = Thread.currentThread().getName();
+            slot.format = format;
+            slot.a = a;
+            slot.b = b;
+            slot.c = c;
+            slot.args = args;
+            slot.argCount = argCount;
+            slot.error = error;
+            slot.sequence = sequence;
+            writer.wakeUp();
+        }
+
+        Slot peek() {
+            long next = consumed;
+            Slot slot = slots[(int) (next & mask)];
+            return slot.sequence == next ? slot : null;
+        }
+
+        void release(Slot slot) {
+            slot.format = null;
+            slot.a = null;
+            slot.b = null;
+            slot.c = null;
+            slot.args = null;
+            slot.error = null;
+            consumed = consumed + 1;
+        }
+    }
+
+    private static final class Writer implements Runnable {
+        private volatile Thread thread;
+        private volatile boolean parked;
+        private volatile String file;
+        private volatile long maxBytes;
+        private volatile int maxFiles;
+        private volatile boolean console = true;
+        private PrintStream out;
+        private long written;
+
+        synchronized void configure(String file, long maxBytes, int maxFiles, boolean console) {
+            this.maxBytes = maxBytes;
+            this.maxFiles = Math.max(1, maxFiles);
+            this.console = console;
+            this.file = file == null || file.isBlank() ? null : file;
+            closeFile();
+        }
+
+        void wakeUp() {
+            if (parked) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        @Override
+        public void run() {
+            thread = Thread.currentThread();
+            while (true) {
+                if (drain() == 0) {
+                    flush();
+                    parked = true;
+                    if (buffer.peek() == null) {
+                        LockSupport.parkNanos(this, 50_000_000L);
+                    }
+                    parked = false;
+                }
+            }
+        }
+
+        synchronized int drain() {
+            int count = 0;
+            Slot slot;
+            while ((slot = buffer.peek()) != null) {
+                try {
+                    write(slot);
+                } catch (RuntimeException e) {
+                    // an argument's toString() threw; losing the line must not take the only writer down with it
+                    System.err.println("Could not log \"" + slot.format + "\": " + e);
+                } finally {
+                    buffer.release(slot);
+                }
+                count++;
+            }
+            return count;
+        }
+
+        synchronized void drainAndClose() {
+            drain();
+            flush();
+            closeFile();
+        }
+
+        private void write(Slot slot) {
+            String line = TIMESTAMP.format(Instant.ofEpochMilli(slot.timeMillis)) + " " +
+                    String.format("%-5s", slot.level) + " [" + slot.thread + "] " + format(slot);
+            if (console) {
+                PrintStream stream = slot.level.ordinal() >= Level.WARN.ordinal() ? System.err : System.out;
+                stream.println(line);
+                if (slot.error != null) {
+                    slot.error.printStackTrace(stream);
+                }
+            }
+            PrintStream fileOut = openFile();
+            if (fileOut != null) {
+                fileOut.println(line);
+                written += line.length() + 1;
+                if (slot.error != null) {
+                    StringWriter trace = new StringWriter();
+                    slot.error.printStackTrace(new PrintWriter(trace));
+                    fileOut.print(trace);
+                    written += trace.getBuffer().length();
+                }
+                if (maxBytes > 0 && written >= maxBytes) {
+                    rotate();
+                }
+            }
+        }
+
+        private PrintStream openFile() {
+            if (out == null && file != null) {
+                try {
+                    File target = new File(file);
+                    written = target.length();
+                    out = new PrintStream(new BufferedOutputStream(new FileOutputStream(target, true), 64 * 1024), false);
+                } catch (IOException e) {
+                    System.err.println("Cannot open log file " + file + ": " + e.getMessage());
+                    file = null;
+                }
+            }
+            return out;
+        }
+
+        // server.log -> server.log.1 -> ... -> server.log.<maxFiles - 1>, the oldest is deleted
+        private void rotate() {
+            closeFile();
+            File oldest = new File(file + "." + (maxFiles - 1));
+            if (oldest.exists() && !oldest.delete()) {
+                System.err.println("Cannot delete old log file " + oldest);
+            }
+            for (int i = maxFiles - 2; i >= 1; i--) {
+                File source = new File(file + "." + i);
+                if (source.exists() && !source.renameTo(new File(file + "." + (i + 1)))) {
+                    System.err.println("Cannot rotate log file " + source);
+                }
+            }
+            File current = new File(file);
+            if (maxFiles > 1 && !current.renameTo(new File(file + ".1"))) {
+                System.err.println("Cannot rotate log file " + current);
+            } else if (maxFiles == 1 && !current.delete()) {
+                System.err.println("Cannot truncate log file " + current);
+            }
+            written = 0;
+        }
+
+        private void flush() {
+            if (out != null) {
+                out.flush();
+            }
+            if (console) {
+                System.out.flush();
+            }
+        }
+
+        private void closeFile() {
+            if (out != null) {
+                out.close();
+                out = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package Server;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Serial executor over a shared pool: tasks sent to one mailbox run one at a time and in order, so the owner's
+// state needs no locks, while many mailboxes share the pool's few threads. A mailbox hands its thread back
+// after a batch so one busy owner cannot starve the others.
+public class Mailbox {
+    private static final int BATCH = 64;
+
+    private final String name;
+    private final Executor executor;
+    private final ConcurrentLinkedQueue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    public Mailbox(String name, Executor executor) {
+        this.name = name;
+        this.executor = executor;
+    }
+
+    // Safe to call from any thread, including from a task of this mailbox (the task runs after the current one).
+    public void send(Runnable task) {
+        queue.offer(task);
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        Thread thread = Thread.currentThread();
+        String poolName = thread.getName();
+        thread.setName(poolName + " " + name);
+        boolean wasShared = OutboundQueue.isSharedThread();
+        OutboundQueue.markSharedThread(true);
+        try {
+            Runnable task;
+            for (int i = 0; i < BATCH && (task = queue.poll()) != null; i++) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    Log.error("Task in {} failed", name, e);
+                }
+            }
+        } finally {
+            OutboundQueue.markSharedThread(wasShared);
+            thread.setName(poolName);
+            scheduled.set(false);
+            // a task may have arrived after the last poll but before the flag was cleared
+            if (!queue.isEmpty() && scheduled.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+    }
+}
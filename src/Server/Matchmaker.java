@@ -0,0 +1,158 @@
+package Server;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+// Pairs waiting players on its own thread. Logins only append to an inbox; the matchmaker thread owns the
+// rating buckets, so pairing needs no locks and two logins can never race for the same opponent.
+// Each pass walks the buckets in rating order and pairs neighbours whose ratings are within the wider of the
+// two players' windows; a window starts narrow and grows the longer the player waits.
+public class Matchmaker implements Runnable {
+    private static final int MAX_RATING = 4000;
+
+    private final BiConsumer<PlayerHandler, PlayerHandler> onMatch;
+    private final int bucketWidth;
+    private final int initialWindow;
+    private final int windowGrowthPerSecond;
+    private final int maxWindow;
+    private final long tickMillis;
+    private final LinkedBlockingQueue<Ticket> inbox = new LinkedBlockingQueue<>();
+    private final ArrayDeque<Ticket>[] buckets;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LatencyHistogram timeToMatchMillis = new LatencyHistogram();
+    private final List<Ticket> pass = new ArrayList<>();
+    private volatile boolean running = true;
+
+    private static final class Ticket {
+        final PlayerHandler player;
+        final int rating;
+        final long enqueuedAt;
+
+        Ticket(PlayerHandler player, int rating, long enqueuedAt) {
+            this.player = player;
+            this.rating = rating;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Matchmaker(GameProperties properties, BiConsumer<PlayerHandler, PlayerHandler> onMatch) {
+        this.onMatch = onMatch;
+        this.bucketWidth = Math.max(1, properties.getMatchmakingBucketWidth());
+        this.initialWindow = properties.getMatchmakingInitialWindow();
+        this.windowGrowthPerSecond = properties.getMatchmakingWindowGrowthPerSecond();
+        this.maxWindow = properties.getMatchmakingMaxWindow();
+        this.tickMillis = Math.max(1, properties.getMatchmakingTickMillis());
+        this.buckets = new ArrayDeque[MAX_RATING / bucketWidth + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+    }
+
+    public void start() {
+        Thread thread = new Thread(this, "matchmaker");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void shutdown() {
+        running = false;
+    }
+
+    // Safe to call from any thread.
+    public void enqueue(PlayerHandler player) {
+        waiting.incrementAndGet();
+        inbox.offer(new Ticket(player, player.getRating(), System.nanoTime()));
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                Ticket ticket = inbox.poll(tickMillis, TimeUnit.MILLISECONDS);
+                if (ticket != null) {
+                    addToBucket(ticket);
+                    // let a burst of logins arrive so they are paired in one pass
+                    Thread.sleep(Math.min(tickMillis, 10));
+                }
+                Ticket next;
+                while ((next = inbox.poll()) != null) {
+                    addToBucket(next);
+                }
+                if (waiting.get() >= 2) {
+                    matchPass(System.nanoTime());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                Log.error("Matchmaking pass failed", e);
+            }
+        }
+    }
+
+    private void addToBucket(Ticket ticket) {
+        buckets[bucketOf(ticket.rating)].addLast(ticket);
+    }
+
+    private int bucketOf(int rating) {
+        return Math.min(Math.max(rating, 0), MAX_RATING) / bucketWidth;
+    }
+
+    // Greedy pairing of rating-order neighbours; within a bucket the longest waiting players come first.
+    private void matchPass(long now) {
+        Ticket pending = null;
+        for (ArrayDeque<Ticket> bucket : buckets) {
+            Ticket ticket;
+            while ((ticket = bucket.pollFirst()) != null) {
+                if (ticket.player.getConnection().isClosed()) {
+                    waiting.decrementAndGet();
+                    continue;
+                }
+                if (pending != null && Math.abs(pending.rating - ticket.rating)
+                        <= Math.max(windowOf(pending, now), windowOf(ticket, now))) {
+                    match(pending, ticket, now);
+                    pending = null;
+                } else {
+                    if (pending != null) {
+                        pass.add(pending);
+                    }
+                    pending = ticket;
+                }
+            }
+        }
+        if (pending != null) {
+            pass.add(pending);
+        }
+        // unmatched players go back in their original order
+        for (Ticket ticket : pass) {
+            addToBucket(ticket);
+        }
+        pass.clear();
+    }
+
+    private int windowOf(Ticket ticket, long now) {
+        long waitedSeconds = TimeUnit.NANOSECONDS.toSeconds(now - ticket.enqueuedAt);
+        return (int) Math.min(maxWindow, initialWindow + waitedSeconds * windowGrowthPerSecond);
+    }
+
+    private void match(Ticket first, Ticket second, long now) {
+        waiting.addAndGet(-2);
+        timeToMatchMillis.record(TimeUnit.NANOSECONDS.toMillis(now - first.enqueuedAt));
+        timeToMatchMillis.record(TimeUnit.NANOSECONDS.toMillis(now - second.enqueuedAt));
+        onMatch.accept(first.player, second.player);
+    }
+
+    public int getWaitingCount() {
+        return waiting.get();
+    }
+
+    public LatencyHistogram getTimeToMatchMillis() {
+        return timeToMatchMillis;
+    }
+}
@@ -0,0 +1,57 @@
+package Server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+// Serves GET /metrics in the Prometheus text format, and GET /players/rtt for operators, on the loopback
+// interface only.
+public class MetricsHttpServer {
+    private final HttpServer httpServer;
+
+    public MetricsHttpServer(ServerMetrics metrics, int port) throws IOException {
+        this.httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        httpServer.createContext("/metrics", exchange -> {
+            try (exchange) {
+                if (!"GET".equals(exchange.getRequestMethod())) {
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+                respond(exchange, metrics.renderPrometheus());
+            }
+        });
+        httpServer.createContext("/players/rtt", exchange -> {
+            try (exchange) {
+                if (!"GET".equals(exchange.getRequestMethod())) {
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+                respond(exchange, metrics.renderPlayerRtt());
+            }
+        });
+    }
+
+    static void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    public void start() {
+        httpServer.start();
+        Log.info("Metrics available on http://{}:{}/metrics", httpServer.getAddress().getHostString(),
+                httpServer.getAddress().getPort());
+    }
+
+    public void stop() {
+        httpServer.stop(0);
+    }
+}
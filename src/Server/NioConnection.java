@@ -0,0 +1,152 @@
+package Server;
+
+import Pojos.FrameCodec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Non-blocking transport owned by a single NioEventLoop. Reads and writes only happen on the loop thread,
+// other threads hand frames over through the outbound queue.
+public class NioConnection extends Connection {
+    private static final int INITIAL_READ_BUFFER = 8 * 1024;
+    private static final int MAX_FRAMES_PER_WRITE = 64;
+
+    private final SocketChannel channel;
+    private final NioEventLoop loop;
+    private final String remoteAddress;
+    private final List<byte[]> drained = new ArrayList<>(MAX_FRAMES_PER_WRITE);
+    private ByteBuffer[] writing = new ByteBuffer[0];
+    private int writingOffset;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_READ_BUFFER);
+    private SelectionKey key;
+
+    public NioConnection(SocketChannel channel, NioEventLoop loop, OutboundQueue outbound) throws IOException {
+        super(outbound);
+        this.channel = channel;
+        this.loop = loop;
+        this.remoteAddress = channel.socket().getInetAddress().getHostAddress();
+    }
+
+    void setKey(SelectionKey key) {
+        this.key = key;
+    }
+
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    @Override
+    protected void frameQueued() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            loop.requestFlush(this);
+        }
+    }
+
+    // Called on the loop thread when the channel is readable.
+    void onReadable() throws IOException {
+        int read = channel.read(readBuffer);
+        if (read < 0) {
+            throw new IOException("Client disconnected: " + remoteAddress);
+        }
+        readBuffer.flip();
+        while (readBuffer.remaining() >= FrameCodec.HEADER_LENGTH) {
+            int length = readBuffer.getInt(readBuffer.position());
+            FrameCodec.checkLength(length);
+            int frameLength = FrameCodec.HEADER_LENGTH + length;
+            if (readBuffer.remaining() < frameLength) {
+                if (readBuffer.capacity() < frameLength) {
+                    ByteBuffer larger = ByteBuffer.allocate(frameLength);
+                    larger.put(readBuffer);
+                    readBuffer = larger;
+                    return;
+                }
+                break;
+            }
+            int start = readBuffer.position() + FrameCodec.HEADER_LENGTH;
+            readBuffer.position(start + length);
+            dispatchFrame(readBuffer.array(), start, length);
+        }
+        readBuffer.compact();
+    }
+
+    // Called on the loop thread, either after a flush request or when the channel becomes writable again.
+    // New frames are only taken from the queue once the previous batch is fully written, so a stalled
+    // client fills its bounded queue and hits the backpressure policy instead of growing a buffer here.
+    void flush() throws IOException {
+        flushScheduled.set(false);
+        while (true) {
+            if (writingOffset == writing.length && !nextBatch()) {
+                if (isCloseWhenFlushed()) {
+                    closeNow();
+                    return;
+                }
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                return;
+            }
+            long written = channel.write(writing, writingOffset, writing.length - writingOffset);
+            outbound.recordFlush((int) written);
+            while (writingOffset < writing.length && !writing[writingOffset].hasRemaining()) {
+                writingOffset++;
+            }
+            if (writingOffset < writing.length) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                return;
+            }
+        }
+    }
+
+    private boolean nextBatch() {
+        drained.clear();
+        if (outbound.drainTo(drained, MAX_FRAMES_PER_WRITE) == 0) {
+            return false;
+        }
+        writing = new ByteBuffer[drained.size()];
+        for (int i = 0; i < writing.length; i++) {
+            writing[i] = ByteBuffer.wrap(drained.get(i));
+        }
+        writingOffset = 0;
+        return true;
+    }
+
+    @Override
+    public String getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            loop.requestClose(this);
+        }
+    }
+
+    // Called on the loop thread.
+    void closeNow() {
+        if (!channel.isOpen()) {
+            return;
+        }
+        closed.set(true);
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            Log.warn("Error closing channel for {}: {}", remoteAddress, e.getMessage());
+        }
+        outbound.clear();
+        disconnected();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed.get() || !channel.isOpen();
+    }
+}
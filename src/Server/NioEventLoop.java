@@ -0,0 +1,136 @@
+package Server;
+
+import java.io.IOException;
+import java.nio.channels.*;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// One selector thread serving many connections. Work from other threads (new channels, flushes, closes)
+// is queued and the selector woken up so that the channel state is only ever touched from this thread.
+public class NioEventLoop implements Runnable {
+    private final Server server;
+    private final Selector selector;
+    private final ConcurrentLinkedQueue<SocketChannel> newChannels = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<NioConnection> flushRequests = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<NioConnection> closeRequests = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = true;
+
+    public NioEventLoop(Server server) throws IOException {
+        this.server = server;
+        this.selector = Selector.open();
+    }
+
+    public void register(SocketChannel channel) {
+        newChannels.offer(channel);
+        selector.wakeup();
+    }
+
+    void requestFlush(NioConnection connection) {
+        flushRequests.offer(connection);
+        selector.wakeup();
+    }
+
+    void requestClose(NioConnection connection) {
+        closeRequests.offer(connection);
+        selector.wakeup();
+    }
+
+    public void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        OutboundQueue.markSharedThread(true);
+        while (running) {
+            try {
+                selector.select();
+                registerNewChannels();
+                processFlushRequests();
+                processCloseRequests();
+                processSelectedKeys();
+            } catch (IOException e) {
+                Log.warn("Event loop error: {}", e.getMessage());
+            } catch (RuntimeException e) {
+                Log.error("Unexpected event loop error", e); // keep serving the other connections
+            }
+        }
+        for (SelectionKey key : selector.keys()) {
+            ((NioConnection) key.attachment()).closeNow();
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            Log.warn("Error closing selector: {}", e.getMessage());
+        }
+    }
+
+    private void registerNewChannels() {
+        SocketChannel channel;
+        while ((channel = newChannels.poll()) != null) {
+            try {
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                NioConnection connection = new NioConnection(channel, this, server.newOutboundQueue());
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ, connection);
+                connection.setKey(key);
+                server.acceptConnection(connection);
+            } catch (IOException e) {
+                Log.warn("Error registering channel: {}", e.getMessage());
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private void processFlushRequests() {
+        NioConnection connection;
+        while ((connection = flushRequests.poll()) != null) {
+            if (connection.isClosed()) {
+                continue;
+            }
+            try {
+                connection.flush();
+            } catch (IOException | CancelledKeyException e) {
+                connection.closeNow();
+            } catch (RuntimeException e) {
+                Log.error("Unexpected error flushing {}, closing it", connection.getRemoteAddress(), e);
+                connection.closeNow();
+            }
+        }
+    }
+
+    private void processCloseRequests() {
+        NioConnection connection;
+        while ((connection = closeRequests.poll()) != null) {
+            connection.closeNow();
+        }
+    }
+
+    private void processSelectedKeys() {
+        Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+        while (iterator.hasNext()) {
+            SelectionKey key = iterator.next();
+            iterator.remove();
+            NioConnection connection = (NioConnection) key.attachment();
+            try {
+                if (key.isValid() && key.isReadable()) {
+                    connection.onReadable();
+                }
+                if (key.isValid() && key.isWritable()) {
+                    connection.flush();
+                }
+            } catch (IOException | CancelledKeyException e) {
+                Log.info("Closing connection {}: {}", connection.getRemoteAddress(), e.getMessage());
+                connection.closeNow();
+            } catch (RuntimeException e) {
+                // a bad frame from one client must not take down the loop and every connection on it
+                Log.error("Unexpected error handling {}, closing it", connection.getRemoteAddress(), e);
+                connection.closeNow();
+            }
+        }
+    }
+}
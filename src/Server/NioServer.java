@@ -0,0 +1,48 @@
+package Server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+// Selector based server mode: the calling thread accepts, a small pool of event loops does all socket IO.
+public class NioServer {
+    private final Server server;
+    private final int port;
+    private final NioEventLoop[] loops;
+
+    public NioServer(Server server, int port, int loopCount) throws IOException {
+        this.server = server;
+        this.port = port;
+        this.loops = new NioEventLoop[Math.max(1, loopCount)];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new NioEventLoop(server);
+        }
+    }
+
+    public void start() throws IOException {
+        for (int i = 0; i < loops.length; i++) {
+            Thread loopThread = new Thread(loops[i], "nio-event-loop-" + i);
+            loopThread.setDaemon(true);
+            loopThread.start();
+        }
+
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress(port));
+            Log.info("Server started on port {} (nio, {} event loops)", port, loops.length);
+            Log.info("Waiting for players to connect...");
+
+            int next = 0;
+            while (true) {
+                SocketChannel channel = serverChannel.accept();
+                Log.debug("New client connected from: {}", channel.socket().getInetAddress().getHostAddress());
+                loops[next].register(channel);
+                next = (next + 1) % loops.length;
+            }
+        } finally {
+            for (NioEventLoop loop : loops) {
+                loop.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package Server;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bounded queue of encoded frames waiting to be written to one client. Game code only enqueues,
+// the connection's writer drains everything pending and writes it with a single flush.
+public class OutboundQueue {
+    public enum BackpressurePolicy {
+        DROP,       // discard the new frame, the client misses it
+        DISCONNECT, // close the connection, the client is too slow to play
+        BLOCK;      // make the sender wait for space, except on shared threads (see markSharedThread)
+
+        public static BackpressurePolicy parse(String value) {
+            return valueOf(value.trim().toUpperCase());
+        }
+    }
+
+    public enum OfferResult {
+        QUEUED,
+        DROPPED,
+        OVERFLOW
+    }
+
+    // Set on threads that serve many clients: NIO event loops, mailbox (game and spectator) pool threads, the
+    // scheduler and the leaderboard. Waiting there for one client's queue would stall everyone else on the
+    // thread, and an event loop would wait for the queue only it drains. On such a thread BLOCK falls back to
+    // DISCONNECT.
+    private static final ThreadLocal<Boolean> SHARED_THREAD = new ThreadLocal<>();
+
+    private final ArrayBlockingQueue<byte[]> frames;
+    private final BackpressurePolicy policy;
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicInteger highWaterMark = new AtomicInteger();
+
+    public OutboundQueue(int capacity, BackpressurePolicy policy) {
+        this.frames = new ArrayBlockingQueue<>(capacity);
+        this.policy = policy;
+    }
+
+    public static boolean isSharedThread() {
+        return SHARED_THREAD.get() != null;
+    }
+
+    public static void markSharedThread(boolean shared) {
+        if (shared) {
+            SHARED_THREAD.set(Boolean.TRUE);
+        } else {
+            SHARED_THREAD.remove();
+        }
+    }
+
+    public OfferResult offer(byte[] frame) throws InterruptedException {
+        boolean queued;
+        if (policy == BackpressurePolicy.BLOCK && !isSharedThread()) {
+            frames.put(frame);
+            queued = true;
+        } else {
+            queued = frames.offer(frame);
+        }
+
+        if (!queued) {
+            dropped.incrementAndGet();
+            return policy == BackpressurePolicy.DROP ? OfferResult.DROPPED : OfferResult.OVERFLOW;
+        }
+        enqueued.incrementAndGet();
+        int depth = frames.size();
+        // offered to from several threads; the plain read skips the CAS once the mark is reached
+        if (depth > highWaterMark.get()) {
+            highWaterMark.accumulateAndGet(depth, Math::max);
+        }
+        return OfferResult.QUEUED;
+    }
+
+    // Waits up to the timeout for the first frame, then takes everything else that is already pending.
+    public int drainTo(List<byte[]> batch, long timeout, TimeUnit unit) throws InterruptedException {
+        byte[] first = frames.poll(timeout, unit);
+        if (first == null) {
+            return 0;
+        }
+        batch.add(first);
+        return 1 + frames.drainTo(batch);
+    }
+
+    public int drainTo(List<byte[]> batch, int maxFrames) {
+        return frames.drainTo(batch, maxFrames);
+    }
+
+    public void recordFlush(int bytes) {
+        flushes.incrementAndGet();
+        bytesWritten.addAndGet(bytes);
+    }
+
+    public void clear() {
+        frames.clear();
+    }
+
+    public boolean isEmpty() {
+        return frames.isEmpty();
+    }
+
+    public int getDepth() {
+        return frames.size();
+    }
+
+    public int getCapacity() {
+        return frames.size() + frames.remainingCapacity();
+    }
+
+    public int getHighWaterMark() {
+        return highWaterMark.get();
+    }
+
+    public long getEnqueued() {
+        return enqueued.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getFlushes() {
+        return flushes.get();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public BackpressurePolicy getPolicy() {
+        return policy;
+    }
+}
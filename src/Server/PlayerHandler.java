@@ -1,102 +1,219 @@
 package Server;
 
+import Pojos.FrameCodec;
 import Pojos.Message;
 import Pojos.MessageType;
 
 import java.io.*;
-import java.net.*;
+import java.util.concurrent.ScheduledFuture;
 
-public class PlayerHandler implements Runnable, Serializable {
+public class PlayerHandler implements Serializable {
     @Serial
     private static final long serialVersionUID = 1L;
     // Transient means the variable is not serialized
-    private transient Socket socket;
+    private transient volatile Connection connection;
     private transient Server server;
-    private transient ObjectOutputStream out;
-    private transient ObjectInputStream in;
     private String username;  // Removed final keyword
-    private transient Game currentGame;
+    private transient volatile Game currentGame;
     private volatile boolean running = true;
-
-    public PlayerHandler(Socket socket, Server server) throws IOException {
-        this.socket = socket;
+    private volatile int rating = 1000;
+    // Session state below is guarded by this handler's lock: the old connection's disconnect, the grace
+    // period expiring and a RESUME on a new connection can all race.
+    private transient String resumeToken;
+    private transient ScheduledFuture<?> graceExpiry;
+    private transient volatile boolean spectating;
+
+    public PlayerHandler(Connection connection, Server server) {
+        this.connection = connection;
         this.server = server;
-        this.out = new ObjectOutputStream(socket.getOutputStream());
-        this.out.flush();
-        this.in = new ObjectInputStream(socket.getInputStream());
+        connection.setHandler(this);
     }
 
-    @Override
-    public void run() {
-        try {
-            handleLogin();
-            handleGameMessages();
-        } catch (IOException | ClassNotFoundException e) {
-            System.err.println("Error in PlayerHandler for " + username + ": " + e.getMessage());
-            e.printStackTrace();
-        } finally {
-            cleanup();
+    // Called by the connection for every decoded frame, on whichever thread reads the connection.
+    public void handleMessage(Message message) throws IOException {
+        server.getMetrics().messageIn(message.getType());
+        if (message.getType() == MessageType.PONG) {
+            return; // the connection already noted that the client is alive
+        }
+        if (message.getType() == MessageType.PING) {
+            if (message.getContent() instanceof Long stamp) {
+                sendMessage(new Message(MessageType.PONG, stamp));
+            } else {
+                Log.warn("Ignoring PING without a timestamp from {}", connection.getRemoteAddress());
+            }
+            return;
+        }
+        if (username == null) {
+            handleLogin(message);
+            return;
+        }
+
+        Log.debug("Received message from {}: {}", username, message.getType());
+        if (currentGame != null) {
+            currentGame.handleMessage(this, message);
+        } else {
+            Log.debug("No current game for player: {}", username);
         }
     }
 
-    private void handleLogin() throws IOException, ClassNotFoundException {
-        Message loginMessage = (Message) in.readObject();
+    // Content is checked rather than cast: a Java-serialized frame can carry any type, or none.
+    private void handleLogin(Message loginMessage) {
+        Object content = loginMessage.getContent();
         if (loginMessage.getType() == MessageType.LOGIN) {
-            this.username = (String) loginMessage.getContent();
-            System.out.println("Player logged in: " + username);
+            if (!(content instanceof String name) || name.isBlank()) {
+                Log.warn("Rejected LOGIN from {} without a valid username", connection.getRemoteAddress());
+                return;
+            }
+            this.username = name;
+            Log.info("Player logged in: {}", username);
             server.registerPlayer(this.username, this);
+        } else if (loginMessage.getType() == MessageType.RESUME) {
+            server.resumeSession(content instanceof String token ? token : null, this);
+        } else if (loginMessage.getType() == MessageType.SPECTATE) {
+            if (!(content instanceof Long gameId)) {
+                Log.warn("Rejected SPECTATE from {} without a game id", connection.getRemoteAddress());
+                return;
+            }
+            spectating = true;
+            server.spectate(gameId, this);
+        } else if (spectating) {
+            Log.debug("Ignoring {} from spectator {}", loginMessage.getType(), connection.getRemoteAddress());
+        } else {
+            Log.warn("Expected LOGIN from {} but got {}", connection.getRemoteAddress(), loginMessage.getType());
         }
     }
 
-    private void handleGameMessages() throws IOException, ClassNotFoundException {
-        while (running && !socket.isClosed()) {
-            try {
-                Message message = (Message) in.readObject();
-                System.out.println("Received message from " + username + ": " + message.getType());
-
-                if (currentGame != null) {
-                    currentGame.handleMessage(this, message);
-                } else {
-                    System.out.println("No current game for player: " + username);
-                }
-            } catch (EOFException e) {
-                System.out.println("Client disconnected: " + username);
-                break;
-            }
+    public void sendMessage(Message message) throws IOException {
+        Connection current = connection;
+        byte[] frame;
+        try {
+            frame = FrameCodec.encode(message, current.getWireFormat());
+        } catch (IOException e) {
+            Log.warn("Error encoding message for {}: {}", username, e.getMessage());
+            throw e;
         }
+        sendFrame(message.getType(), frame, current);
     }
 
-    public synchronized void sendMessage(Message message) throws IOException {
+    // Sends an already encoded frame to the connection whose wire format it was encoded for; see Broadcast.
+    // Taking the connection from the caller means a resume in between cannot pair a frame with a connection
+    // that reads another format. A frame for a connection replaced since is discarded with it.
+    public void sendFrame(MessageType type, byte[] frame, Connection current) throws IOException {
         try {
-            System.out.println("Sending message type " + message.getType() + " to " + username);
-            out.writeObject(message);
-            out.reset();
-            out.flush();
-            System.out.println("Message sent successfully to " + username);
+            Log.debug("Sending message type {} to {}", type, username);
+            if (current.sendFrame(frame)) {
+                server.getMetrics().messageOut(type, frame.length); // dropped frames are not sent
+            }
         } catch (IOException e) {
-            System.err.println("Error sending message to " + username + ": " + e.getMessage());
+            Log.warn("Error sending message to {}: {}", username, e.getMessage());
             throw e;
         }
     }
 
+    public Connection getConnection() {
+        return connection;
+    }
+
     public void setCurrentGame(Game game) {
         this.currentGame = game;
-        System.out.println("Set current game for " + username);
+        Log.debug("Set current game for {}", username);
+    }
+
+    public void clearCurrentGame(Game game) {
+        if (currentGame == game) {
+            currentGame = null;
+        }
+    }
+
+    public Game getCurrentGame() {
+        return currentGame;
     }
 
     public String getUsername() {
         return username;
     }
 
+    public int getRating() {
+        return rating;
+    }
+
+    public void setRating(int rating) {
+        this.rating = rating;
+    }
+
+    synchronized String getResumeToken() {
+        return resumeToken;
+    }
+
+    synchronized void setResumeToken(String token) {
+        this.resumeToken = token;
+    }
+
+    // Moves the player onto a new connection, closing the old one in case the server has not noticed it
+    // drop yet. Fails once the session has ended or the token was already used.
+    synchronized boolean reattach(Connection newConnection, String token) {
+        if (resumeToken == null || !resumeToken.equals(token)) {
+            return false;
+        }
+        if (graceExpiry != null) {
+            graceExpiry.cancel(false);
+            graceExpiry = null;
+        }
+        Connection old = connection;
+        connection = newConnection;
+        newConnection.setHandler(this);
+        old.close();
+        return true;
+    }
+
+    // While a game is running the seat is held for the resume grace period instead of forfeiting at once.
+    public void onDisconnect(Connection closedConnection) {
+        server.connectionClosed(closedConnection);
+        synchronized (this) {
+            if (closedConnection != connection) {
+                return; // the old connection of a player who already resumed
+            }
+            Game game = currentGame;
+            long graceMillis = server.getGameProperties().getSessionResumeGraceMillis();
+            if (game != null && !game.isFinished() && resumeToken != null && graceMillis > 0) {
+                Log.info("{} dropped, holding their seat in game {} for {} ms", username, game.getId(), graceMillis);
+                server.getMetrics().sessionHeld();
+                graceExpiry = server.getScheduler().schedule("resume-grace-" + username,
+                        () -> graceExpired(closedConnection), graceMillis);
+                return;
+            }
+        }
+        cleanup();
+    }
+
+    private void graceExpired(Connection closedConnection) {
+        synchronized (this) {
+            if (closedConnection != connection || graceExpiry == null) {
+                return;
+            }
+            graceExpiry = null;
+        }
+        Log.info("{} did not resume within the grace period", username);
+        server.getMetrics().sessionExpired();
+        cleanup();
+    }
+
     private void cleanup() {
         running = false;
-        try {
-            System.out.println("Cleaning up resources for " + username);
-            if (out != null) out.close();
-            if (in != null) in.close();
-            if (socket != null) socket.close();
-        } catch (IOException e) {
-            System.err.println("Error during cleanup for " + username + ": " + e.getMessage());
+        Log.debug("Cleaning up resources for {}", username);
+        String token;
+        synchronized (this) {
+            token = resumeToken;
+            resumeToken = null;
+        }
+        server.endSession(token, this);
+        if (username != null) {
+            server.unregisterPlayer(username, this);
+        }
+        connection.close();
+        Game game = currentGame;
+        if (game != null) {
+            game.handlePlayerDisconnect(this);
         }
     }
 
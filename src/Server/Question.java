@@ -7,30 +7,60 @@ import java.util.*;
 public class Question implements Serializable {
     @Serial
     private static final long serialVersionUID = 1L;
+    public static final int NO_ID = -1;
 
+    private final int id;
     private final String text;
     private final List<String> options;
     private final int correctOptionIndex;
 
     public Question(String text, List<String> options, int correctOptionIndex) {
+        this(NO_ID, text, options, correctOptionIndex);
+    }
+
+    // id is the question's position in the loaded bank, NO_ID for questions that are not part of it
+    public Question(int id, String text, List<String> options, int correctOptionIndex) {
+        this.id = id;
         this.text = text;
-        // Create a new ArrayList to ensure serializability
-        this.options = new ArrayList<>(options);
+        // An immutable copy is serializable and can be handed out as is
+        this.options = List.copyOf(options);
         this.correctOptionIndex = correctOptionIndex;
     }
 
+    public int getId() {
+        return id;
+    }
+
     public String getText() {
         return text;
     }
 
     public List<String> getOptions() {
-        return new ArrayList<>(options); // Return a copy to prevent modification
+        return options;
     }
 
     public int getCorrectOptionIndex() {
         return correctOptionIndex;
     }
 
+    // FNV-1a over the text, options and answer; unlike the id it still names the same question after a reload
+    // or an edit to the bank, so the game journal records it alongside the id.
+    public long getContentHash() {
+        long hash = 0xcbf29ce484222325L;
+        hash = mix(hash, text);
+        for (String option : options) {
+            hash = mix(hash, option);
+        }
+        return (hash ^ correctOptionIndex) * 0x100000001b3L;
+    }
+
+    private static long mix(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return (hash ^ 0xFFFF) * 0x100000001b3L; // separator, so "ab","c" and "a","bc" differ
+    }
+
     @Override
     public String toString() {
         return "Question{text='" + text + "', options=" + options +
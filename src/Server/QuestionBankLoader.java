@@ -0,0 +1,345 @@
+package Server;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.IntStream;
+
+// Loads a question bank CSV (RFC 4180: quoted fields, "" escapes, CRLF or LF) by memory-mapping the file,
+// cutting it into chunks at record boundaries and parsing the chunks in parallel.
+// Columns: Question, Choice A-D, Correct Answer, Category. The first record is the header.
+public class QuestionBankLoader {
+    private static final int MIN_CHUNK_BYTES = 1 << 20;
+    private static final int FIELDS = 7;
+    private static final Map<String, Category> CATEGORIES_BY_NAME = new HashMap<>();
+
+    static {
+        for (Category category : Category.values()) {
+            CATEGORIES_BY_NAME.put(category.name(), category);
+        }
+    }
+
+    public enum Problem {
+        TOO_FEW_FIELDS,
+        ANSWER_NOT_AN_OPTION,
+        UNKNOWN_CATEGORY,
+        UNTERMINATED_QUOTE
+    }
+
+    public static final class Result {
+        private final Map<Category, List<Question>> questions;
+        private final Map<Problem, Integer> problems;
+        private final long firstProblemOffset;
+        private final long bytes;
+        private final long millis;
+
+        private Result(Map<Category, List<Question>> questions, Map<Problem, Integer> problems,
+                       long firstProblemOffset, long bytes, long millis) {
+            this.questions = questions;
+            this.problems = problems;
+            this.firstProblemOffset = firstProblemOffset;
+            this.bytes = bytes;
+            this.millis = millis;
+        }
+
+        public Map<Category, List<Question>> getQuestions() {
+            return questions;
+        }
+
+        public int getQuestionCount() {
+            return questions.values().stream().mapToInt(List::size).sum();
+        }
+
+        public Map<Problem, Integer> getProblems() {
+            return problems;
+        }
+
+        public int getMalformedCount() {
+            return problems.values().stream().mapToInt(Integer::intValue).sum();
+        }
+
+        public long getFirstProblemOffset() {
+            return firstProblemOffset;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+    }
+
+    public static Result load(Path file) throws IOException {
+        return load(file, 0);
+    }
+
+    // Question ids are assigned in file order starting at firstId, so several files can share one id space.
+    public static Result load(Path file, int firstId) throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] boundaries = findChunkBoundaries(channel, size);
+            int chunkCount = boundaries.length - 1;
+
+            Chunk[] chunks = IntStream.range(0, chunkCount).parallel()
+                    .mapToObj(i -> parseChunk(channel, boundaries[i], boundaries[i + 1], i == 0))
+                    .toArray(Chunk[]::new);
+
+            Map<Category, List<Question>> questions = new EnumMap<>(Category.class);
+            for (Category category : Category.values()) {
+                questions.put(category, new ArrayList<>());
+            }
+            Map<Problem, Integer> problems = new EnumMap<>(Problem.class);
+            long firstProblemOffset = -1;
+            int nextId = firstId;
+            for (Chunk chunk : chunks) {
+                if (chunk.error != null) {
+                    throw chunk.error;
+                }
+                for (int i = 0; i < chunk.count; i++) {
+                    questions.get(chunk.categories[i]).add(new Question(nextId++, chunk.texts[i],
+                            Arrays.asList(chunk.options[i]), chunk.correct[i]));
+                }
+                for (Problem problem : Problem.values()) {
+                    int count = chunk.problemCounts[problem.ordinal()];
+                    if (count > 0) {
+                        problems.merge(problem, count, Integer::sum);
+                    }
+                }
+                if (firstProblemOffset < 0) {
+                    firstProblemOffset = chunk.firstProblemOffset;
+                }
+            }
+            return new Result(questions, problems, firstProblemOffset, size, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    // One sequential pass that only tracks quote parity, so a chunk never starts inside a quoted field
+    // that contains a line break.
+    private static long[] findChunkBoundaries(FileChannel channel, long size) throws IOException {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        long target = Math.max(MIN_CHUNK_BYTES, size / (parallelism * 4L) + 1);
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+
+        long window = Integer.MAX_VALUE - 8;
+        boolean inQuotes = false;
+        long nextBoundary = target;
+        for (long base = 0; base < size && nextBoundary < size; base += window) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, base, Math.min(window, size - base));
+            int limit = buffer.limit();
+            for (int i = 0; i < limit; i++) {
+                byte b = buffer.get(i);
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                } else if (b == '\n' && !inQuotes && base + i + 1 >= nextBoundary && base + i + 1 < size) {
+                    boundaries.add(base + i + 1);
+                    nextBoundary = base + i + 1 + target;
+                }
+            }
+        }
+        boundaries.add(size);
+
+        long[] result = new long[boundaries.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = boundaries.get(i);
+        }
+        return result;
+    }
+
+    private static Chunk parseChunk(FileChannel channel, long start, long end, boolean first) {
+        Chunk chunk = new Chunk((int) Math.max(16, (end - start) / 96));
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            new ChunkParser(buffer, start, chunk).parse(first);
+        } catch (IOException e) {
+            chunk.error = e;
+        }
+        return chunk;
+    }
+
+    // Parsed rows of one chunk in parallel arrays; Question objects are only created when the chunks are
+    // merged in file order, so question ids are stable across loads of the same file.
+    private static final class Chunk {
+        String[] texts;
+        String[][] options;
+        int[] correct;
+        Category[] categories;
+        int count;
+        final int[] problemCounts = new int[Problem.values().length];
+        long firstProblemOffset = -1;
+        IOException error;
+
+        Chunk(int capacity) {
+            texts = new String[capacity];
+            options = new String[capacity][];
+            correct = new int[capacity];
+            categories = new Category[capacity];
+        }
+
+        void add(String text, String[] rowOptions, int correctIndex, Category category) {
+            if (count == texts.length) {
+                int capacity = count * 2;
+                texts = Arrays.copyOf(texts, capacity);
+                options = Arrays.copyOf(options, capacity);
+                correct = Arrays.copyOf(correct, capacity);
+                categories = Arrays.copyOf(categories, capacity);
+            }
+            texts[count] = text;
+            options[count] = rowOptions;
+            correct[count] = correctIndex;
+            categories[count] = category;
+            count++;
+        }
+
+        void problem(Problem problem, long offset) {
+            problemCounts[problem.ordinal()]++;
+            if (firstProblemOffset < 0) {
+                firstProblemOffset = offset;
+            }
+        }
+    }
+
+    private static final class ChunkParser {
+        private final MappedByteBuffer buffer;
+        private final long fileOffset;
+        private final Chunk chunk;
+        private final int limit;
+        private final String[] fields = new String[FIELDS];
+        private byte[] scratch = new byte[256];
+        private int position;
+
+        ChunkParser(MappedByteBuffer buffer, long fileOffset, Chunk chunk) {
+            this.buffer = buffer;
+            this.fileOffset = fileOffset;
+            this.chunk = chunk;
+            this.limit = buffer.limit();
+        }
+
+        void parse(boolean first) {
+            if (first) {
+                skipByteOrderMark();
+            }
+            boolean header = first;
+            while (position < limit) {
+                long recordOffset = fileOffset + position;
+                int fieldCount = readRecord();
+                if (fieldCount < 0) {
+                    chunk.problem(Problem.UNTERMINATED_QUOTE, recordOffset);
+                    return;
+                }
+                if (header) {
+                    header = false;
+                    continue;
+                }
+                if (fieldCount == 1 && fields[0].isEmpty()) {
+                    continue; // blank line
+                }
+                addRow(fieldCount, recordOffset);
+            }
+        }
+
+        private void addRow(int fieldCount, long recordOffset) {
+            if (fieldCount < FIELDS) {
+                chunk.problem(Problem.TOO_FEW_FIELDS, recordOffset);
+                return;
+            }
+            String[] rowOptions = {fields[1], fields[2], fields[3], fields[4]};
+            int correctIndex = -1;
+            for (int i = 0; i < rowOptions.length; i++) {
+                if (rowOptions[i].equals(fields[5])) {
+                    correctIndex = i;
+                    break;
+                }
+            }
+            if (correctIndex < 0) {
+                chunk.problem(Problem.ANSWER_NOT_AN_OPTION, recordOffset);
+                return;
+            }
+            Category category = CATEGORIES_BY_NAME.get(fields[6].toUpperCase(Locale.ROOT));
+            if (category == null) {
+                chunk.problem(Problem.UNKNOWN_CATEGORY, recordOffset);
+                return;
+            }
+            chunk.add(fields[0], rowOptions, correctIndex, category);
+        }
+
+        // Reads one record into `fields` (extra columns are ignored) and returns the number of fields,
+        // or -1 when the chunk ends inside a quoted field.
+        private int readRecord() {
+            int fieldCount = 0;
+            while (true) {
+                int length = 0;
+                boolean quoted = false;
+                if (position < limit && buffer.get(position) == '"') {
+                    quoted = true;
+                    position++;
+                    while (true) {
+                        if (position >= limit) {
+                            return -1;
+                        }
+                        byte b = buffer.get(position++);
+                        if (b == '"') {
+                            if (position < limit && buffer.get(position) == '"') {
+                                position++;
+                            } else {
+                                break;
+                            }
+                        }
+                        length = append(length, b);
+                    }
+                }
+                // unquoted field, or anything between a closing quote and the next separator
+                while (position < limit) {
+                    byte b = buffer.get(position);
+                    if (b == ',' || b == '\n' || b == '\r') {
+                        break;
+                    }
+                    if (!quoted) {
+                        length = append(length, b);
+                    }
+                    position++;
+                }
+                if (fieldCount < FIELDS) {
+                    fields[fieldCount] = new String(scratch, 0, length, StandardCharsets.UTF_8).trim();
+                }
+                fieldCount++;
+
+                if (position >= limit) {
+                    return fieldCount;
+                }
+                byte separator = buffer.get(position++);
+                if (separator == '\r') {
+                    if (position < limit && buffer.get(position) == '\n') {
+                        position++;
+                    }
+                    return fieldCount;
+                }
+                if (separator == '\n') {
+                    return fieldCount;
+                }
+            }
+        }
+
+        private int append(int length, byte b) {
+            if (length == scratch.length) {
+                scratch = Arrays.copyOf(scratch, length * 2);
+            }
+            scratch[length] = b;
+            return length + 1;
+        }
+
+        private void skipByteOrderMark() {
+            if (limit >= 3 && (buffer.get(0) & 0xFF) == 0xEF && (buffer.get(1) & 0xFF) == 0xBB
+                    && (buffer.get(2) & 0xFF) == 0xBF) {
+                position = 3;
+            }
+        }
+    }
+}
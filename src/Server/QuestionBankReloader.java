@@ -0,0 +1,134 @@
+package Server;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Publishes the current question bank and rebuilds it in the background when a source file changes.
+// Readers only do a volatile read of the reference; a game keeps the snapshot it was created with.
+public class QuestionBankReloader implements Runnable {
+    private final List<Path> sources;
+    private final long debounceMillis;
+    private final int fragmentCacheEntries;
+    private final AtomicReference<QuestionDatabase> current;
+    private final AtomicLong reloads = new AtomicLong();
+    private final AtomicLong failedReloads = new AtomicLong();
+    private volatile long lastReloadMillis = -1;
+    private volatile long lastReloadBytes = -1;
+    private volatile int lastReloadQuestions = -1;
+
+    public QuestionBankReloader(List<Path> sources, QuestionDatabase initial, long debounceMillis,
+                                int fragmentCacheEntries) {
+        this.sources = List.copyOf(sources);
+        this.debounceMillis = debounceMillis;
+        this.fragmentCacheEntries = fragmentCacheEntries;
+        this.current = new AtomicReference<>(initial);
+    }
+
+    public QuestionDatabase current() {
+        return current.get();
+    }
+
+    public void start() {
+        Thread thread = new Thread(this, "question-bank-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            Map<Path, Set<Path>> watchedNames = new HashMap<>();
+            for (Path source : sources) {
+                Path absolute = source.toAbsolutePath();
+                watchedNames.computeIfAbsent(absolute.getParent(), dir -> new HashSet<>()).add(absolute.getFileName());
+            }
+            for (Path dir : watchedNames.keySet()) {
+                dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+            Log.info("Watching {} for question bank changes", sources);
+
+            while (!Thread.currentThread().isInterrupted()) {
+                if (!touchesSource(watcher.take(), watchedNames)) {
+                    continue;
+                }
+                // wait until the sources have been quiet for the debounce period
+                WatchKey key;
+                while ((key = watcher.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                    touchesSource(key, watchedNames);
+                }
+                reload();
+            }
+        } catch (IOException e) {
+            Log.error("Question bank watcher stopped", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // shutting down
+        }
+    }
+
+    private static boolean touchesSource(WatchKey key, Map<Path, Set<Path>> watchedNames) {
+        Set<Path> names = watchedNames.getOrDefault((Path) key.watchable(), Set.of());
+        boolean relevant = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || names.contains((Path) event.context())) {
+                relevant = true;
+            }
+        }
+        key.reset();
+        return relevant;
+    }
+
+    // Builds a complete new bank off to the side and swaps it in. A failed or empty read keeps the old bank.
+    public boolean reload() {
+        long start = System.nanoTime();
+        try {
+            Map<Category, List<Question>> questions = QuestionDatabase.readSources(sources);
+            QuestionDatabase database = new QuestionDatabase(questions, fragmentCacheEntries);
+            if (database.getQuestionCount() == 0) {
+                failedReloads.incrementAndGet();
+                Log.warn("Reload found no questions in {}, keeping the current bank", sources);
+                return false;
+            }
+            long bytes = 0;
+            for (Path source : sources) {
+                bytes += Files.size(source);
+            }
+            current.set(database);
+            lastReloadMillis = (System.nanoTime() - start) / 1_000_000;
+            lastReloadBytes = bytes;
+            lastReloadQuestions = database.getQuestionCount();
+            reloads.incrementAndGet();
+            Log.info("Question bank reloaded: {} questions, {} bytes in {} ms", lastReloadQuestions, bytes, lastReloadMillis);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            failedReloads.incrementAndGet();
+            Log.warn("Question bank reload failed, keeping the current bank: {}", e.toString());
+            return false;
+        }
+    }
+
+    public long getReloadCount() {
+        return reloads.get();
+    }
+
+    public long getFailedReloadCount() {
+        return failedReloads.get();
+    }
+
+    public long getLastReloadMillis() {
+        return lastReloadMillis;
+    }
+
+    public long getLastReloadBytes() {
+        return lastReloadBytes;
+    }
+
+    public int getLastReloadQuestions() {
+        return lastReloadQuestions;
+    }
+}
@@ -1,132 +1,179 @@
 package Server;
 
-import java.io.*;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 
+// The question bank is loaded once and then frozen into one array per category (indexed by ordinal).
+// Nothing is mutated after construction, so any number of games can sample from it without locking.
 public class QuestionDatabase {
-    private final Map<Category, List<Question>> questions = new HashMap<>();
+    private static final Category[] CATEGORIES = Category.values();
+    public static final int DEFAULT_FRAGMENT_CACHE_ENTRIES = 65536;
+
+    private final Question[][] questionsByCategory;
+    private final int questionCount;
+    private final QuestionFragmentCache fragmentCache;
 
     public QuestionDatabase() {
-        loadQuestions();
+        this(loadQuestions(List.of(Path.of("questions.csv"))));
+    }
+
+    public QuestionDatabase(Map<Category, List<Question>> questions) {
+        this(questions, DEFAULT_FRAGMENT_CACHE_ENTRIES);
+    }
+
+    public QuestionDatabase(Map<Category, List<Question>> questions, int fragmentCacheEntries) {
+        this.fragmentCache = new QuestionFragmentCache(fragmentCacheEntries);
+        this.questionsByCategory = new Question[CATEGORIES.length][];
+        int total = 0;
+        for (Category category : CATEGORIES) {
+            List<Question> categoryQuestions = questions.getOrDefault(category, Collections.emptyList());
+            questionsByCategory[category.ordinal()] = categoryQuestions.toArray(new Question[0]);
+            total += categoryQuestions.size();
+        }
+        this.questionCount = total;
+    }
+
+    // Startup load: falls back to the built-in questions when no source yields any.
+    public static QuestionDatabase load(List<Path> sources, int fragmentCacheEntries) {
+        return new QuestionDatabase(loadQuestions(sources), fragmentCacheEntries);
     }
 
-    private void loadQuestions() {
+    private static Map<Category, List<Question>> loadQuestions(List<Path> sources) {
+        Map<Category, List<Question>> questions = new EnumMap<>(Category.class);
         // Initialize empty lists for each category
         for (Category category : Category.values()) {
             questions.put(category, new ArrayList<>());
         }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader("questions.csv"))) {
-            String line;
-            boolean firstLine = true;
-
-            while ((line = reader.readLine()) != null) {
-                if (firstLine) {
-                    firstLine = false;
-                    continue; // Skip the header row
-                }
-
-                try {
-                    String[] parts = line.split(",");
-                    if (parts.length >= 7) {
-                        String questionText = parts[0].trim();
-                        List<String> options = Arrays.asList(
-                                parts[1].trim(),
-                                parts[2].trim(),
-                                parts[3].trim(),
-                                parts[4].trim()
-                        );
-                        String correctAnswer = parts[5].trim();
-                        String categoryStr = parts[6].trim();
-
-                        // Find correct answer index
-                        int correctIndex = options.indexOf(correctAnswer);
-                        if (correctIndex == -1) {
-                            System.err.println("Warning: Correct answer '" + correctAnswer +
-                                    "' not found in options for question: " + questionText);
-                            continue; // Skip this question
-                        }
-
-                        try {
-                            Category category = Category.valueOf(categoryStr.toUpperCase());
-                            Question question = new Question(questionText, options, correctIndex);
-                            questions.get(category).add(question);
-                            System.out.println("Loaded question for category " + category + ": " + questionText);
-                        } catch (IllegalArgumentException e) {
-                            System.err.println("Invalid category '" + categoryStr + "' for question: " + questionText);
-                        }
-                    }
-                } catch (Exception e) {
-                    System.err.println("Error parsing line: " + line);
-                    e.printStackTrace();
-                }
-            }
+        try {
+            questions = readSources(sources);
         } catch (IOException e) {
-            System.err.println("Error reading questions.csv: " + e.getMessage());
-            loadDefaultQuestions();
+            Log.warn("Error reading question sources: {}", e.getMessage());
         }
 
         // Print summary of loaded questions
         for (Category category : Category.values()) {
-            System.out.println("Category " + category + " has " + questions.get(category).size() + " questions");
+            Log.info("Category {} has {} questions", category, questions.get(category).size());
         }
 
         // If no questions were loaded, load defaults
         if (questions.values().stream().allMatch(List::isEmpty)) {
-            System.out.println("No questions were loaded from file, loading defaults...");
-            loadDefaultQuestions();
+            Log.warn("No questions were loaded from file, loading defaults...");
+            loadDefaultQuestions(questions);
+        }
+        return questions;
+    }
+
+    // Reads every source into one bank; ids continue from one file to the next. Any unreadable source fails
+    // the whole read, so a reload never publishes a partial bank.
+    static Map<Category, List<Question>> readSources(List<Path> sources) throws IOException {
+        Map<Category, List<Question>> questions = new EnumMap<>(Category.class);
+        for (Category category : Category.values()) {
+            questions.put(category, new ArrayList<>());
         }
+        int nextId = 0;
+        for (Path source : sources) {
+            QuestionBankLoader.Result result = QuestionBankLoader.load(source, nextId);
+            Log.info("Loaded {} questions from {} in {} ms", result.getQuestionCount(), source, result.getMillis());
+            if (result.getMalformedCount() > 0) {
+                Log.warn("Skipped malformed rows in {}: {}, first at byte offset {}",
+                        source, result.getProblems(), result.getFirstProblemOffset());
+            }
+            for (Map.Entry<Category, List<Question>> entry : result.getQuestions().entrySet()) {
+                questions.get(entry.getKey()).addAll(entry.getValue());
+            }
+            nextId += result.getQuestionCount();
+        }
+        return questions;
     }
 
-    private void loadDefaultQuestions() {
-        addDefaultQuestion(Category.HISTORY, "Which year did World War II end?",
+    private static void loadDefaultQuestions(Map<Category, List<Question>> questions) {
+        addDefaultQuestion(questions, Category.HISTORY, "Which year did World War II end?",
                 Arrays.asList("1943", "1944", "1945", "1946"), 2);
 
-        addDefaultQuestion(Category.SCIENCE, "What is the chemical symbol for gold?",
+        addDefaultQuestion(questions, Category.SCIENCE, "What is the chemical symbol for gold?",
                 Arrays.asList("Au", "Ag", "Fe", "Cu"), 0);
 
-        addDefaultQuestion(Category.GEOGRAPHY, "What is the capital of Australia?",
+        addDefaultQuestion(questions, Category.GEOGRAPHY, "What is the capital of Australia?",
                 Arrays.asList("Sydney", "Melbourne", "Perth", "Canberra"), 3);
 
-        addDefaultQuestion(Category.LITERATURE, "Who wrote Romeo and Juliet?",
+        addDefaultQuestion(questions, Category.LITERATURE, "Who wrote Romeo and Juliet?",
                 Arrays.asList("Charles Dickens", "William Shakespeare", "Jane Austen", "Mark Twain"), 1);
 
-        addDefaultQuestion(Category.MATH, "What is the square root of 144?",
+        addDefaultQuestion(questions, Category.MATH, "What is the square root of 144?",
                 Arrays.asList("10", "11", "12", "13"), 2);
 
 
         for (Category category : Category.values()) {
-            System.out.println("Category " + category + " has " + questions.get(category).size() + " default questions");
+            Log.info("Category {} has {} default questions", category, questions.get(category).size());
         }
     }
 
-    private void addDefaultQuestion(Category category, String questionText, List<String> options, int correctIndex) {
-        questions.get(category).add(new Question(questionText, options, correctIndex));
-        System.out.println("Added default question for category " + category + ": " + questionText);
+    private static void addDefaultQuestion(Map<Category, List<Question>> questions, Category category,
+                                           String questionText, List<String> options, int correctIndex) {
+        int nextId = questions.values().stream().mapToInt(List::size).sum();
+        questions.get(category).add(new Question(nextId, questionText, options, correctIndex));
+        Log.debug("Added default question for category {}: {}", category, questionText);
     }
 
+    // Uniform sample of `count` distinct questions in O(count): Floyd's algorithm picks the indices,
+    // a Fisher-Yates pass over the picks randomizes their order. The category array is never copied.
     public List<Question> getQuestionsForRound(Category category, int count) {
-        List<Question> categoryQuestions = new ArrayList<>(questions.get(category));
+        Question[] categoryQuestions = questionsByCategory[category.ordinal()];
 
-        if (categoryQuestions.isEmpty()) {
-            System.err.println("No questions available for category: " + category);
+        if (categoryQuestions.length == 0) {
+            Log.warn("No questions available for category: {}", category);
             return loadEmergencyQuestions(count);
         }
 
-        Collections.shuffle(categoryQuestions);
-        List<Question> selectedQuestions = new ArrayList<>();
-        for (int i = 0; i < Math.min(count, categoryQuestions.size()); i++) {
-            selectedQuestions.add(categoryQuestions.get(i));
+        int size = categoryQuestions.length;
+        int picks = Math.min(count, size);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int[] indices = new int[picks];
+        for (int j = size - picks, n = 0; j < size; j++, n++) {
+            int candidate = random.nextInt(j + 1);
+            indices[n] = contains(indices, n, candidate) ? j : candidate;
+        }
+        Question[] selected = new Question[picks];
+        for (int i = picks - 1; i >= 0; i--) {
+            int swap = random.nextInt(i + 1);
+            int index = indices[swap];
+            indices[swap] = indices[i];
+            selected[i] = categoryQuestions[index];
+        }
+
+        Log.debug("Selected {} questions from category {}", picks, category);
+        return List.of(selected);
+    }
+
+    private static boolean contains(int[] values, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) {
+                return true;
+            }
         }
+        return false;
+    }
+
+    public QuestionFragmentCache getFragmentCache() {
+        return fragmentCache;
+    }
+
+    public int getQuestionCount() {
+        return questionCount;
+    }
 
-        System.out.println("Selected " + selectedQuestions.size() + " questions from category " + category);
-        return selectedQuestions;
+    public int getQuestionCount(Category category) {
+        return questionsByCategory[category.ordinal()].length;
     }
 
     public List<Question> loadEmergencyQuestions(int count) {
         List<Question> emergencyQuestions = new ArrayList<>();
         for (int i = 0; i < count; i++) {
             emergencyQuestions.add(new Question(
+                    Question.NO_ID,
                     "Emergency Question " + (i + 1),
                     Arrays.asList("Option A", "Option B", "Option C", "Option D"),
                     0
@@ -137,14 +184,14 @@ public class QuestionDatabase {
 
     private Category getRandomCategory() {
         List<Category> availableCategories = new ArrayList<>();
-        for (Map.Entry<Category, List<Question>> entry : questions.entrySet()) {
-            if (!entry.getValue().isEmpty()) {
-                availableCategories.add(entry.getKey());
+        for (Category category : CATEGORIES) {
+            if (questionsByCategory[category.ordinal()].length > 0) {
+                availableCategories.add(category);
             }
         }
         if (availableCategories.isEmpty()) {
             return Category.values()[0];
         }
-        return availableCategories.get(new Random().nextInt(availableCategories.size()));
+        return availableCategories.get(ThreadLocalRandom.current().nextInt(availableCategories.size()));
     }
 }
\ No newline at end of file
@@ -0,0 +1,110 @@
+package Server;
+
+import Pojos.BinaryCodec;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Binary encodings of a question bank's questions, keyed by question id, so a ROUND_START frame is assembled by
+// copying a few cached fragments instead of walking the questions again. Each bank snapshot has its own cache,
+// since ids are only stable within one load.
+// The cache is bounded for huge banks: it is split into segments by id, each an access-ordered LRU under its own
+// lock, so games on different actor threads rarely contend. A fragment is encoded outside the lock; two games
+// missing on the same question at once both encode it, which is harmless.
+public class QuestionFragmentCache {
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final int capacity;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private final class Segment extends LinkedHashMap<Integer, byte[]> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final int maxEntries;
+
+        Segment(int maxEntries) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, byte[]> eldest) {
+            if (size() > maxEntries) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    public QuestionFragmentCache(int capacity) {
+        this.capacity = Math.max(SEGMENTS, capacity);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(this.capacity / SEGMENTS);
+        }
+    }
+
+    public byte[] fragmentOf(Question question) throws IOException {
+        if (question.getId() == Question.NO_ID) {
+            return BinaryCodec.encodeQuestion(question); // not part of the bank, nothing to key it by
+        }
+        Segment segment = segments[question.getId() & (SEGMENTS - 1)];
+        byte[] fragment;
+        synchronized (segment) {
+            fragment = segment.get(question.getId());
+        }
+        if (fragment != null) {
+            hits.increment();
+            return fragment;
+        }
+        misses.increment();
+        fragment = BinaryCodec.encodeQuestion(question);
+        synchronized (segment) {
+            segment.put(question.getId(), fragment);
+        }
+        return fragment;
+    }
+
+    // The BINARY_V1 ROUND_START frame for these questions.
+    public byte[] roundStartFrame(List<Question> questions) throws IOException {
+        byte[][] fragments = new byte[questions.size()][];
+        for (int i = 0; i < fragments.length; i++) {
+            fragments[i] = fragmentOf(questions.get(i));
+        }
+        return BinaryCodec.encodeRoundStartFrame(fragments);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+}
@@ -0,0 +1,50 @@
+package Server;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+// Sent to each player after a finished game: the new rating, how much it moved and the player's global rank.
+public class RankUpdate implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final String username;
+    private final int rating;
+    private final int ratingChange;
+    private final int rank;
+    private final int totalPlayers;
+
+    public RankUpdate(String username, int rating, int ratingChange, int rank, int totalPlayers) {
+        this.username = username;
+        this.rating = rating;
+        this.ratingChange = ratingChange;
+        this.rank = rank;
+        this.totalPlayers = totalPlayers;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public int getRating() {
+        return rating;
+    }
+
+    public int getRatingChange() {
+        return ratingChange;
+    }
+
+    public int getRank() {
+        return rank;
+    }
+
+    public int getTotalPlayers() {
+        return totalPlayers;
+    }
+
+    @Override
+    public String toString() {
+        return username + " " + rating + " (" + (ratingChange >= 0 ? "+" : "") + ratingChange + "), rank "
+                + rank + " of " + totalPlayers;
+    }
+}
@@ -4,68 +4,109 @@ import java.io.Serial;
 import java.io.Serializable;
 import java.util.*;
 
+// Answers are kept per seat (0 = player 1, 1 = player 2) in one pre-sized int array, and scores and answered
+// counts are updated as answers arrive, so completion checks and scoring never walk or allocate anything.
 public class Round implements Serializable {
     @Serial
     private static final long serialVersionUID = 1L;
 
+    public static final int SEATS = 2;
+    public static final int TIMED_OUT = -1;
+    public static final int NOT_ANSWERED = -2;
+
     private final List<Question> questions;
-    private final Map<PlayerHandler, List<Answer>> playerAnswers;
     private final Category category;
+    private final int[] selectedOptions; // [seat * questionCount + questionIndex]
+    private final int[] answerMillis; // same layout, time from round start to the answer or timeout
+    private long startedAt = System.nanoTime(); // moved to the delivery stamp by markDelivered
+    private final int[] scores = new int[SEATS];
+    private final int[] answeredCounts = new int[SEATS];
+    private final int[] firstUnanswered = new int[SEATS]; // answers may arrive out of order
+    private int completedSeats;
 
     public Round(List<Question> questions, Category category) {
-        this.questions = new ArrayList<>(questions); // Create new ArrayList with questions
+        this.questions = List.copyOf(questions);
         this.category = category;
-        this.playerAnswers = new HashMap<>();
+        this.selectedOptions = new int[SEATS * this.questions.size()];
+        this.answerMillis = new int[selectedOptions.length];
+        Arrays.fill(selectedOptions, NOT_ANSWERED);
     }
 
-
     public boolean isComplete() {
+        return completedSeats == SEATS && !questions.isEmpty();
+    }
 
-        if (questions.isEmpty()) {
-            System.out.println("Warning: Round has no questions!");
-            return false;
-        }
-
-        boolean bothPlayersAnswered = playerAnswers.size() == 2;
-        boolean allQuestionsAnswered = playerAnswers.values().stream()
-                .allMatch(answers -> answers.size() == questions.size());
+    // nanoTime at which the questions were handed to the players' connections
+    public void markDelivered(long deliveredAt) {
+        startedAt = deliveredAt;
+    }
 
+    public boolean recordAnswer(int seat, int questionIndex, int selectedOption) {
+        return recordAnswer(seat, questionIndex, selectedOption, System.nanoTime());
+    }
 
-        return bothPlayersAnswered && allQuestionsAnswered;
+    // Returns false for answers to unknown or already answered questions, e.g. a client's own timeout
+    // arriving after the server already recorded one, and for options the question does not have (only
+    // TIMED_OUT is accepted besides real options). answeredAt is the nanoTime the answer is timed at, the game
+    // moves it back by the network delay.
+    public boolean recordAnswer(int seat, int questionIndex, int selectedOption, long answeredAt) {
+        int questionCount = questions.size();
+        if (questionIndex < 0 || questionIndex >= questionCount) {
+            return false;
+        }
+        if (selectedOption != TIMED_OUT
+                && (selectedOption < 0 || selectedOption >= questions.get(questionIndex).getOptions().size())) {
+            return false;
+        }
+        int slot = seat * questionCount + questionIndex;
+        if (selectedOptions[slot] != NOT_ANSWERED) {
+            return false;
+        }
+        selectedOptions[slot] = selectedOption;
+        answerMillis[slot] = (int) (Math.max(0, answeredAt - startedAt) / 1_000_000);
+        if (selectedOption == questions.get(questionIndex).getCorrectOptionIndex()) {
+            scores[seat]++;
+        }
+        if (++answeredCounts[seat] == questionCount) {
+            completedSeats++;
+        }
+        int base = seat * questionCount;
+        while (firstUnanswered[seat] < questionCount && selectedOptions[base + firstUnanswered[seat]] != NOT_ANSWERED) {
+            firstUnanswered[seat]++;
+        }
+        return true;
     }
 
+    // The lowest question index this seat has not answered yet, or the question count once all are answered.
+    public int getFirstUnanswered(int seat) {
+        return firstUnanswered[seat];
+    }
 
-    public void recordAnswer(PlayerHandler player, Answer answer) {
-        playerAnswers.computeIfAbsent(player, k -> new ArrayList<>()).add(answer);
-        System.out.println("Recorded answer from " + player.getUsername() +
-                ". Total answers: " + playerAnswers.get(player).size() +
-                "/" + questions.size());
+    public int getAnsweredCount(int seat) {
+        return answeredCounts[seat];
     }
 
-    public RoundResult getResult() {
-        Map<PlayerHandler, Integer> scores = new HashMap<>();
+    public int getScore(int seat) {
+        return scores[seat];
+    }
 
-        for (Map.Entry<PlayerHandler, List<Answer>> entry : playerAnswers.entrySet()) {
-            PlayerHandler player = entry.getKey();
-            List<Answer> answers = entry.getValue();
-            int score = calculateScore(answers);
-            scores.put(player, score);
-            System.out.println("Player " + player.getUsername() + " scored: " + score);
-        }
+    public int getSelectedOption(int seat, int questionIndex) {
+        return selectedOptions[seat * questions.size() + questionIndex];
+    }
 
-        return new RoundResult(scores);
+    public int getAnswerMillis(int seat, int questionIndex) {
+        return answerMillis[seat * questions.size() + questionIndex];
     }
 
-    private int calculateScore(List<Answer> answers) {
-        int score = 0;
-        for (int i = 0; i < answers.size(); i++) {
-            Answer answer = answers.get(i);
-            if (answer.getSelectedOption() == questions.get(answer.getQuestionIndex()).getCorrectOptionIndex()) {
-                score++;
-            }
-        }
-        return score;
+    public int getQuestionCount() {
+        return questions.size();
     }
 
+    public List<Question> getQuestions() {
+        return questions;
+    }
 
-}
\ No newline at end of file
+    public Category getCategory() {
+        return category;
+    }
+}
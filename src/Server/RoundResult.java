@@ -9,7 +9,7 @@ public class RoundResult implements Serializable {
     private static final long serialVersionUID = 1L;
 
     private final Map<String, Integer> scores;
-    private final Map<PlayerHandler, Integer> playerScores; // For server-side use
+    private final transient Map<PlayerHandler, Integer> playerScores; // For server-side use
 
     public RoundResult(Map<PlayerHandler, Integer> playerScores) {
         this.playerScores = new HashMap<>(playerScores);
@@ -19,6 +19,16 @@ public class RoundResult implements Serializable {
         }
     }
 
+    private RoundResult(Map<String, Integer> scores, Map<PlayerHandler, Integer> playerScores) {
+        this.scores = scores;
+        this.playerScores = playerScores;
+    }
+
+    // Rebuilds a result on the client from the scores sent over the wire.
+    public static RoundResult fromScores(Map<String, Integer> scores) {
+        return new RoundResult(scores, Collections.emptyMap());
+    }
+
     public Map<String, Integer> getScores() {
         return scores;
     }
@@ -0,0 +1,57 @@
+package Server;
+
+// Smoothed round-trip time of one connection, measured with PING/PONG like TCP does with segments (RFC 6298):
+// srtt moves 1/8 and the mean deviation 1/4 of the way towards each new sample.
+// Only the PONG echoing the last PING counts, so a client cannot feed in old or made-up stamps; it can still
+// answer late, which is why the game caps the credit it gives for network delay.
+// Pings are stamped on the scheduler thread and answered on the connection's reading thread.
+public class RttEstimator {
+    private static final long NONE = Long.MIN_VALUE;
+
+    private volatile long outstandingPing = NONE;
+    private volatile long smoothedNanos = -1;
+    private volatile long deviationNanos;
+    private volatile long lastSampleNanos = -1;
+    private volatile long sampleCount;
+
+    public void pingSent(long stamp) {
+        outstandingPing = stamp;
+    }
+
+    // Returns false for a PONG that does not answer the outstanding PING.
+    public boolean pongReceived(long stamp, long now) {
+        if (stamp != outstandingPing || now < stamp) {
+            return false;
+        }
+        outstandingPing = NONE;
+        long sample = now - stamp;
+        long smoothed = smoothedNanos;
+        if (smoothed < 0) {
+            deviationNanos = sample / 2;
+            smoothedNanos = sample;
+        } else {
+            deviationNanos = (3 * deviationNanos + Math.abs(smoothed - sample)) / 4;
+            smoothedNanos = (7 * smoothed + sample) / 8;
+        }
+        lastSampleNanos = sample;
+        sampleCount++;
+        return true;
+    }
+
+    // -1 until the first sample
+    public long getSmoothedNanos() {
+        return smoothedNanos;
+    }
+
+    public long getDeviationNanos() {
+        return deviationNanos;
+    }
+
+    public long getLastSampleNanos() {
+        return lastSampleNanos;
+    }
+
+    public long getSampleCount() {
+        return sampleCount;
+    }
+}
@@ -1,71 +1,439 @@
 package Server;
 
+import Pojos.Message;
+import Pojos.MessageType;
+
 import java.io.*;
 import java.net.*;
+import java.nio.file.Path;
+import java.security.SecureRandom;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.*;
 
 public class Server {
     private static final int PORT = 12649;
     private final ConcurrentHashMap<String, PlayerHandler> players = new ConcurrentHashMap<>();
-    private final ConcurrentLinkedQueue<PlayerHandler> waitingPlayers = new ConcurrentLinkedQueue<>();
-    private final Set<Game> activeGames = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet(); // open, logged in or not
+    private final ConcurrentHashMap<String, PlayerHandler> sessions = new ConcurrentHashMap<>(); // by resume token
+    private final SecureRandom tokenRandom = new SecureRandom();
+    private final AtomicLong gameSequence = new AtomicLong(1);
+    private final ConcurrentHashMap<Long, Game> activeGames = new ConcurrentHashMap<>();
     private final GameProperties gameProperties;
-    private final QuestionDatabase questionDB;
+    private final QuestionBankReloader questionBank;
+    private final ServerExecutors executors;
+    private final GameScheduler scheduler;
+    private final TimingWheel deadlineWheel;
+    private final Matchmaker matchmaker;
+    private final ServerMetrics metrics;
+    private final Leaderboard leaderboard;
+    private final GameJournal journal;
+    private final ClusterConfig.Node node;
+    private final int port;
 
     public Server() {
+        this(null);
+    }
+
+    // node is this server's entry in cluster.properties, or null for a standalone server
+    public Server(ClusterConfig.Node node) {
+        this.node = node;
         this.gameProperties = new GameProperties();
-        this.questionDB = new QuestionDatabase();
+        if (node != null) {
+            gameProperties.applyClusterNode(node);
+        }
+        this.port = node == null ? PORT : node.getPort();
+        Log.configure(gameProperties);
+        List<Path> questionSources = new ArrayList<>();
+        for (String source : gameProperties.getQuestionSources()) {
+            questionSources.add(Path.of(source));
+        }
+        int fragmentCacheEntries = gameProperties.getQuestionFragmentCacheEntries();
+        this.questionBank = new QuestionBankReloader(questionSources,
+                QuestionDatabase.load(questionSources, fragmentCacheEntries),
+                gameProperties.getQuestionsReloadDebounceMillis(), fragmentCacheEntries);
+        this.executors = new ServerExecutors(ServerExecutors.Mode.parse(gameProperties.getExecutionMode()),
+                gameProperties.getGameActorThreads(), gameProperties.getSpectatorFanoutThreads());
+        this.scheduler = new GameScheduler(gameProperties.getSchedulerThreads());
+        this.deadlineWheel = new TimingWheel(gameProperties.getDeadlineTickMillis(), gameProperties.getDeadlineWheelSize());
+        this.matchmaker = new Matchmaker(gameProperties, this::startGame);
+        this.metrics = new ServerMetrics(this);
+        this.leaderboard = new Leaderboard(gameProperties.getLeaderboardKFactor(),
+                Path.of(gameProperties.getLeaderboardSnapshotFile()));
+        leaderboard.loadSnapshot();
+        this.journal = gameProperties.isJournalEnabled()
+                ? new GameJournal(Path.of(gameProperties.getJournalDirectory()),
+                        gameProperties.getJournalDurabilityWindowMillis(), gameProperties.getJournalSegmentBytes())
+                : null;
+    }
+
+    public GameProperties getGameProperties() {
+        return gameProperties;
+    }
+
+    // The current snapshot; a game keeps the one it was created with even if the bank is reloaded meanwhile.
+    public QuestionDatabase getQuestionDatabase() {
+        return questionBank.current();
+    }
+
+    public QuestionBankReloader getQuestionBank() {
+        return questionBank;
+    }
+
+    public GameScheduler getScheduler() {
+        return scheduler;
+    }
+
+    public ServerExecutors getExecutors() {
+        return executors;
+    }
+
+    public TimingWheel getDeadlineWheel() {
+        return deadlineWheel;
+    }
+
+    public Matchmaker getMatchmaker() {
+        return matchmaker;
+    }
+
+    public Leaderboard getLeaderboard() {
+        return leaderboard;
+    }
+
+    // null when journal.enabled is false
+    public GameJournal getJournal() {
+        return journal;
+    }
+
+    public ServerMetrics getMetrics() {
+        return metrics;
+    }
+
+    public int getPlayerCount() {
+        return players.size();
+    }
+
+    public int getActiveGameCount() {
+        return activeGames.size();
     }
 
     public void start() {
-        try (ServerSocket serverSocket = new ServerSocket(PORT)) {
-            System.out.println("Server started on port " + PORT);
-            System.out.println("Waiting for players to connect...");
+        if (node != null) {
+            Log.info("Running as cluster {}", node);
+        }
+        startOutboundMonitor();
+        startConnectionReaper();
+        matchmaker.start();
+        startLeaderboard();
+        startJournal();
+        startMetrics();
+        if (gameProperties.isQuestionsWatchEnabled()) {
+            questionBank.start();
+        }
+        String mode = gameProperties.getServerMode();
+        if ("nio".equalsIgnoreCase(mode)) {
+            startNio();
+        } else {
+            startBlocking();
+        }
+    }
+
+    private void startBlocking() {
+        try (ServerSocket serverSocket = new ServerSocket(port)) {
+            Log.info("Server started on port {} (blocking, {} threads)", port, executors.getMode());
+            Log.info("Waiting for players to connect...");
 
             while (true) {
                 Socket clientSocket = serverSocket.accept();
-                System.out.println("New client connected from: " +
-                        clientSocket.getInetAddress().getHostAddress());
-                PlayerHandler playerHandler = new PlayerHandler(clientSocket, this);
-                new Thread(playerHandler).start();
+                Log.debug("New client connected from: {}", clientSocket.getInetAddress().getHostAddress());
+                BlockingConnection connection = new BlockingConnection(clientSocket, newOutboundQueue());
+                acceptConnection(connection);
+                String name = clientSocket.getInetAddress().getHostAddress() + ":" + clientSocket.getPort();
+                executors.startConnection(name, connection);
+                executors.startConnection(name + "-writer", connection::writeLoop);
+            }
+        } catch (IOException e) {
+            Log.error("Server error", e);
+        }
+    }
+
+    private void startNio() {
+        try {
+            new NioServer(this, port, gameProperties.getNioEventLoopThreads()).start();
+        } catch (IOException e) {
+            Log.error("Server error", e);
+        }
+    }
+
+    private void startLeaderboard() {
+        leaderboard.start();
+        int intervalSeconds = gameProperties.getLeaderboardSnapshotIntervalSeconds();
+        if (intervalSeconds > 0) {
+            scheduler.scheduleAtFixedRate("leaderboard-snapshot", leaderboard::saveSnapshot, intervalSeconds * 1000L);
+            Runtime.getRuntime().addShutdownHook(new Thread(leaderboard::saveSnapshot, "leaderboard-snapshot"));
+        }
+    }
+
+    private void startJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(journal::close, "game-journal-close"));
+        } catch (IOException e) {
+            // games still run; append is a no-op on a journal that never started, so they just are not recorded
+            Log.error("Could not open the game journal", e);
+        }
+    }
+
+    private void startMetrics() {
+        if (gameProperties.isMetricsJmxEnabled()) {
+            metrics.registerJmx();
+        }
+        int port = gameProperties.getMetricsHttpPort();
+        if (port > 0) {
+            try {
+                new MetricsHttpServer(metrics, port).start();
+            } catch (IOException e) {
+                Log.warn("Could not start the metrics endpoint on port {}: {}", port, e.getMessage());
+            }
+        }
+    }
+
+    // Periodically lists the clients whose outbound queues are falling behind.
+    private void startOutboundMonitor() {
+        int intervalSeconds = gameProperties.getOutboundReportIntervalSeconds();
+        if (intervalSeconds <= 0) {
+            return;
+        }
+        scheduler.scheduleAtFixedRate("outbound-monitor", this::reportOutboundQueues, intervalSeconds * 1000L);
+        scheduler.scheduleAtFixedRate("matchmaking-report", this::reportMatchmaking, intervalSeconds * 1000L);
+    }
+
+    // Pings every connection once per heartbeat, which keeps the RTT estimates fresh and makes an idle client
+    // answer, and closes the ones that stay silent past the idle timeout. Closing takes the normal disconnect
+    // path, so a reaped player's seat is held for a resume or their game is forfeited, and their session and
+    // registration are released. A connection that has not sent its first frame is not pinged, since the client
+    // may still be on its login screen, and gets the much longer login timeout instead.
+    private void startConnectionReaper() {
+        long heartbeatMillis = gameProperties.getHeartbeatIntervalMillis();
+        if (heartbeatMillis <= 0) {
+            return;
+        }
+        scheduler.scheduleAtFixedRate("connection-reaper", this::reapIdleConnections, heartbeatMillis);
+    }
+
+    public void reapIdleConnections() {
+        long now = System.nanoTime();
+        long idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(gameProperties.getIdleTimeoutMillis());
+        long loginTimeoutMillis = gameProperties.getLoginTimeoutMillis();
+        long loginTimeoutNanos = loginTimeoutMillis > 0
+                ? TimeUnit.MILLISECONDS.toNanos(loginTimeoutMillis) : Long.MAX_VALUE;
+        int reaped = 0;
+        for (Connection connection : connections) {
+            if (connection.isClosed()) {
+                continue;
+            }
+            long idle = now - connection.getLastReceivedAt();
+            if (idle >= (connection.isFormatNegotiated() ? idleTimeoutNanos : loginTimeoutNanos)) {
+                Log.info("Closing {} after {} ms without a frame", connection.getRemoteAddress(),
+                        TimeUnit.NANOSECONDS.toMillis(idle));
+                metrics.connectionReaped();
+                connection.close();
+                reaped++;
+            } else if (connection.isFormatNegotiated()) {
+                ping(connection);
             }
+        }
+        if (reaped > 0) {
+            Log.info("Reaped {} idle connections", reaped);
+        }
+    }
+
+    // Skipped while the client's queue is full: it is not reading, and under the BLOCK policy the reaper
+    // would wait for it.
+    private void ping(Connection connection) {
+        OutboundQueue queue = connection.getOutboundQueue();
+        PlayerHandler handler = connection.getHandler();
+        if (handler == null || queue.getDepth() >= queue.getCapacity() - 1) {
+            return;
+        }
+        long stamp = System.nanoTime();
+        connection.getRtt().pingSent(stamp);
+        try {
+            handler.sendMessage(new Message(MessageType.PING, stamp));
         } catch (IOException e) {
-            System.err.println("Server error: " + e.getMessage());
-            e.printStackTrace();
+            Log.debug("Could not ping {}: {}", connection.getRemoteAddress(), e.getMessage());
+        }
+    }
+
+    public void reportOutboundQueues() {
+        for (PlayerHandler player : players.values()) {
+            OutboundQueue queue = player.getConnection().getOutboundQueue();
+            if (queue.getDepth() > 0 || queue.getDropped() > 0) {
+                Log.info("Outbound queue for {}: depth={}/{} highWater={} dropped={} flushes={} bytes={}",
+                        player.getUsername(), queue.getDepth(), queue.getCapacity(), queue.getHighWaterMark(),
+                        queue.getDropped(), queue.getFlushes(), queue.getBytesWritten());
+            }
         }
     }
 
+    public void reportMatchmaking() {
+        LatencyHistogram timeToMatch = matchmaker.getTimeToMatchMillis();
+        if (timeToMatch.getCount() > 0) {
+            Log.info("Matchmaking: waiting={} matched={} timeToMatch p50={}ms p90={}ms p99={}ms max={}ms",
+                    matchmaker.getWaitingCount(), timeToMatch.getCount(), timeToMatch.getPercentile(0.5),
+                    timeToMatch.getPercentile(0.9), timeToMatch.getPercentile(0.99), timeToMatch.getMax());
+        }
+    }
+
+    public OutboundQueue newOutboundQueue() {
+        return new OutboundQueue(gameProperties.getOutboundQueueCapacity(),
+                OutboundQueue.BackpressurePolicy.parse(gameProperties.getOutboundBackpressurePolicy()));
+    }
+
+    public PlayerHandler acceptConnection(Connection connection) {
+        metrics.connectionOpened();
+        connections.add(connection);
+        return new PlayerHandler(connection, this);
+    }
+
+    public void connectionClosed(Connection connection) {
+        if (connections.remove(connection)) {
+            metrics.connectionClosed();
+        }
+    }
+
+    public Collection<PlayerHandler> getPlayers() {
+        return players.values();
+    }
+
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
     public void registerPlayer(String username, PlayerHandler handler) {
-        System.out.println("Registering player: " + username);
+        Log.debug("Registering player: {}", username);
         players.put(username, handler);
-        waitingPlayers.offer(handler);
-        System.out.println("Current waiting players: " + waitingPlayers.size());
-        matchPlayers();
-    }
-
-    private void matchPlayers() {
-        while (waitingPlayers.size() >= 2) {
-            PlayerHandler player1 = waitingPlayers.poll();
-            PlayerHandler player2 = waitingPlayers.poll();
-
-            if (player1 != null && player2 != null) {
-                System.out.println("Matching players for a new game: " +
-                        player1.getUsername() + " vs " + player2.getUsername());
-                Game game = new Game(player1, player2, gameProperties, questionDB);
-                activeGames.add(game);
-                System.out.println("Active games: " + activeGames.size());
-                new Thread(() -> {
-                    game.start();
-                    activeGames.remove(game);
-                    System.out.println("Game completed. Active games: " + activeGames.size());
-                }).start();
+        handler.setRating(leaderboard.getRating(username));
+        issueResumeToken(handler);
+        ping(handler.getConnection()); // a first RTT sample before the first question
+        matchmaker.enqueue(handler);
+        Log.debug("Current waiting players: {}", matchmaker.getWaitingCount());
+    }
+
+    // A RESUME frame on a fresh connection: move the player holding that token onto it and let their game
+    // resend its current state. The token is single use, a new one comes back with LOGIN_ACCEPTED.
+    public void resumeSession(String token, PlayerHandler newHandler) {
+        PlayerHandler player = token == null ? null : sessions.get(token);
+        Game game = player == null ? null : player.getCurrentGame();
+        if (game == null || game.isFinished() || !player.reattach(newHandler.getConnection(), token)) {
+            Log.info("Rejected resume from {}", newHandler.getConnection().getRemoteAddress());
+            try {
+                newHandler.sendMessage(new Message(MessageType.RESUME_FAILED, null));
+            } catch (IOException e) {
+                // the client will see the connection close instead
             }
+            return;
+        }
+        sessions.remove(token, player);
+        Log.info("{} resumed game {} from {}", player.getUsername(), game.getId(),
+                player.getConnection().getRemoteAddress());
+        metrics.sessionResumed();
+        issueResumeToken(player);
+        ping(player.getConnection());
+        game.handlePlayerResumed(player);
+    }
+
+    // A SPECTATE frame instead of a LOGIN: the connection becomes a read-only viewer of the game.
+    public void spectate(long gameId, PlayerHandler spectator) {
+        Game game = activeGames.get(gameId);
+        if (game == null) {
+            Log.debug("{} asked to watch unknown game {}", spectator.getConnection().getRemoteAddress(), gameId);
+            try {
+                spectator.sendMessage(new Message(MessageType.SPECTATOR_EVENT, new SpectatorEvent(gameId, 0,
+                        SpectatorEvent.Kind.NOT_FOUND, 0, null, null, 0, null)));
+            } catch (IOException e) {
+                // the client will see the connection close instead
+            }
+            return;
+        }
+        game.addSpectator(spectator);
+    }
+
+    public Collection<Game> getActiveGames() {
+        return activeGames.values();
+    }
+
+    private void issueResumeToken(PlayerHandler handler) {
+        byte[] random = new byte[16];
+        tokenRandom.nextBytes(random);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+        if (node != null) {
+            token = node.getId() + "." + token; // lets the cluster router find this node again
+        }
+        sessions.put(token, handler);
+        handler.setResumeToken(token);
+        try {
+            handler.sendMessage(new Message(MessageType.LOGIN_ACCEPTED, token));
+        } catch (IOException e) {
+            Log.debug("Could not send resume token to {}: {}", handler.getUsername(), e.getMessage());
+        }
+    }
+
+    // A later login with the same name may already have replaced this handler.
+    public void unregisterPlayer(String username, PlayerHandler handler) {
+        players.remove(username, handler);
+    }
+
+    public void endSession(String token, PlayerHandler handler) {
+        if (token != null) {
+            sessions.remove(token, handler);
         }
     }
 
-    public static void main(String[] args) {
-        Server server = new Server();
+    // Called on the matchmaker thread for every pair it forms.
+    private void startGame(PlayerHandler player1, PlayerHandler player2) {
+        Log.debug("Matching players for a new game: {} vs {}", player1.getUsername(), player2.getUsername());
+        Game game = new Game(player1, player2, this);
+        activeGames.put(game.getId(), game);
+        metrics.gameStarted();
+        Log.debug("Active games: {}", activeGames.size());
+        game.start();
+    }
+
+    // In a cluster the node id is part of the game id, so the router can send spectators to this node.
+    public long nextGameId() {
+        long sequence = gameSequence.getAndIncrement();
+        return node == null ? sequence : ClusterConfig.gameIdOf(node.getId(), sequence);
+    }
+
+    // Called by the game's cleanup task once both players have received the result.
+    public void gameEnded(Game game) {
+        activeGames.remove(game.getId(), game);
+        Log.debug("Game completed. Active games: {}", activeGames.size());
+    }
+
+    // Usage: java Server.Server [--node=<id> [--cluster=cluster.properties]]
+    public static void main(String[] args) throws IOException {
+        String nodeId = null;
+        String clusterFile = ClusterConfig.DEFAULT_FILE;
+        for (String arg : args) {
+            if (arg.startsWith("--node=")) {
+                nodeId = arg.substring("--node=".length());
+            } else if (arg.startsWith("--cluster=")) {
+                clusterFile = arg.substring("--cluster=".length());
+            }
+        }
+        ClusterConfig.Node node = null;
+        if (nodeId != null) {
+            node = ClusterConfig.load(clusterFile).getNode(Integer.parseInt(nodeId));
+            if (node == null) {
+                throw new IllegalArgumentException("Node " + nodeId + " is not listed in " + clusterFile);
+            }
+        }
+        Server server = new Server(node);
         server.start();
     }
 }
\ No newline at end of file
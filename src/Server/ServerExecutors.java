@@ -0,0 +1,65 @@
+package Server;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Single place where the server starts threads for connections and runs game actors.
+// "platform" keeps one OS thread per connection and a small fixed pool for games,
+// "virtual" runs the same code on virtual threads.
+public class ServerExecutors {
+    public enum Mode {
+        PLATFORM,
+        VIRTUAL;
+
+        public static Mode parse(String value) {
+            return "virtual".equalsIgnoreCase(value.trim()) ? VIRTUAL : PLATFORM;
+        }
+    }
+
+    private final Mode mode;
+    private final ThreadFactory threads;
+    private final ExecutorService gameExecutor;
+    private final ExecutorService spectatorExecutor;
+
+    public ServerExecutors(Mode mode, int gameThreads, int spectatorThreads) {
+        this.mode = mode;
+        this.threads = (mode == Mode.VIRTUAL ? Thread.ofVirtual() : Thread.ofPlatform()).factory();
+        this.gameExecutor = newPool(mode, "game-actor-", gameThreads);
+        this.spectatorExecutor = newPool(mode, "spectator-fanout-", spectatorThreads);
+    }
+
+    private static ExecutorService newPool(Mode mode, String prefix, int threads) {
+        if (mode == Mode.VIRTUAL) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 0).factory());
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, threads), task -> {
+            Thread thread = new Thread(task, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public Thread startConnection(String name, Runnable task) {
+        Thread thread = threads.newThread(task);
+        thread.setName("player-" + name);
+        thread.start();
+        return thread;
+    }
+
+    // Shared by every game's mailbox; each game only ever occupies one of these threads at a time.
+    public ExecutorService getGameExecutor() {
+        return gameExecutor;
+    }
+
+    // Delivers spectator events, one feed at a time per thread, away from the game actors.
+    public ExecutorService getSpectatorExecutor() {
+        return spectatorExecutor;
+    }
+}
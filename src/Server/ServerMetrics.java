@@ -0,0 +1,370 @@
+package Server;
+
+import Pojos.MessageType;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+// In-process metrics. Recording is a striped LongAdder or LatencyHistogram update on a pre-created instance
+// (messages are counted in arrays indexed by MessageType ordinal), so nothing is allocated on the hot path.
+// Gauges are read from the owning components only when the metrics are scraped.
+public class ServerMetrics implements ServerMetricsMXBean {
+    private static final MessageType[] TYPES = MessageType.values();
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final Server server;
+    private final LongAdder connectionsOpened = new LongAdder();
+    private final LongAdder connectionsClosed = new LongAdder();
+    private final LongAdder connectionsReaped = new LongAdder();
+    private final LongAdder gamesStarted = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder sessionsHeld = new LongAdder();
+    private final LongAdder sessionsResumed = new LongAdder();
+    private final LongAdder sessionsExpired = new LongAdder();
+    private final LongAdder spectatorsJoined = new LongAdder();
+    private final LongAdder spectatorEventsSent = new LongAdder();
+    private final LongAdder spectatorEventsSkipped = new LongAdder();
+    private final LongAdder[] messagesIn = new LongAdder[TYPES.length];
+    private final LongAdder[] messagesOut = new LongAdder[TYPES.length];
+    private final LatencyHistogram handlerLatencyMicros = new LatencyHistogram();
+    private final LatencyHistogram roundDurationMillis = new LatencyHistogram();
+
+    public ServerMetrics(Server server) {
+        this.server = server;
+        for (int i = 0; i < TYPES.length; i++) {
+            messagesIn[i] = new LongAdder();
+            messagesOut[i] = new LongAdder();
+        }
+    }
+
+    public void connectionOpened() {
+        connectionsOpened.increment();
+    }
+
+    public void connectionClosed() {
+        connectionsClosed.increment();
+    }
+
+    public void connectionReaped() {
+        connectionsReaped.increment();
+    }
+
+    public void gameStarted() {
+        gamesStarted.increment();
+    }
+
+    public void sessionHeld() {
+        sessionsHeld.increment();
+    }
+
+    public void sessionResumed() {
+        sessionsResumed.increment();
+    }
+
+    public void sessionExpired() {
+        sessionsExpired.increment();
+    }
+
+    public void spectatorJoined() {
+        spectatorsJoined.increment();
+    }
+
+    public void spectatorEvents(long sent, long skipped) {
+        spectatorEventsSent.add(sent);
+        spectatorEventsSkipped.add(skipped);
+    }
+
+    public void messageIn(MessageType type) {
+        messagesIn[type.ordinal()].increment();
+    }
+
+    public void messageOut(MessageType type, int frameBytes) {
+        messagesOut[type.ordinal()].increment();
+        bytesSent.add(frameBytes);
+    }
+
+    public void handlerLatency(long nanos) {
+        handlerLatencyMicros.record(nanos / 1000);
+    }
+
+    public void roundDuration(long millis) {
+        roundDurationMillis.record(millis);
+    }
+
+    public void registerJmx() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("Server:type=Metrics"));
+        } catch (JMException e) {
+            Log.warn("Could not register metrics with JMX: {}", e.getMessage());
+        }
+    }
+
+    // Prometheus text exposition format, version 0.0.4.
+    public String renderPrometheus() {
+        StringBuilder out = new StringBuilder(4096);
+        gauge(out, "quiz_open_connections", "Client connections currently open", getOpenConnections());
+        counter(out, "quiz_connections_reaped_total", "Connections closed for staying silent past the idle timeout",
+                getConnectionsReaped());
+        gauge(out, "quiz_logged_in_players", "Players registered with the server", getLoggedInPlayers());
+        gauge(out, "quiz_waiting_players", "Players waiting for an opponent", getWaitingPlayers());
+        gauge(out, "quiz_active_games", "Games in progress", getActiveGames());
+        gauge(out, "quiz_spectators", "Spectators watching games in progress", getSpectatorCount());
+        counter(out, "quiz_games_started_total", "Games started", gamesStarted.sum());
+        counter(out, "quiz_sessions_held_total", "Dropped players whose seat was held for a resume", sessionsHeld.sum());
+        counter(out, "quiz_sessions_resumed_total", "Players who resumed their game on a new connection",
+                getSessionsResumed());
+        counter(out, "quiz_sessions_expired_total", "Held seats forfeited because the player did not return",
+                getSessionsExpired());
+        counter(out, "quiz_spectators_joined_total", "Spectators subscribed to a game", spectatorsJoined.sum());
+        counter(out, "quiz_spectator_events_sent_total", "Spectator events handed to spectator connections",
+                spectatorEventsSent.sum());
+        counter(out, "quiz_spectator_events_skipped_total", "Spectator events skipped for spectators that fell behind",
+                spectatorEventsSkipped.sum());
+        counter(out, "quiz_bytes_sent_total", "Bytes of encoded frames queued to connections", bytesSent.sum());
+
+        out.append("# HELP quiz_messages_in_total Messages received from clients\n");
+        out.append("# TYPE quiz_messages_in_total counter\n");
+        for (MessageType type : TYPES) {
+            out.append("quiz_messages_in_total{type=\"").append(type).append("\"} ")
+                    .append(messagesIn[type.ordinal()].sum()).append('\n');
+        }
+        out.append("# HELP quiz_messages_out_total Messages sent to clients\n");
+        out.append("# TYPE quiz_messages_out_total counter\n");
+        for (MessageType type : TYPES) {
+            out.append("quiz_messages_out_total{type=\"").append(type).append("\"} ")
+                    .append(messagesOut[type.ordinal()].sum()).append('\n');
+        }
+
+        summary(out, "quiz_game_handler_latency_microseconds", "Time a game spends handling one client message",
+                handlerLatencyMicros);
+        summary(out, "quiz_round_duration_milliseconds", "Time from ROUND_START to both players completing the round",
+                roundDurationMillis);
+        summary(out, "quiz_time_to_match_milliseconds", "Time from login to being paired",
+                server.getMatchmaker().getTimeToMatchMillis());
+
+        gauge(out, "quiz_question_bank_questions", "Questions in the current bank", getQuestionCount());
+        counter(out, "quiz_question_bank_reloads_total", "Successful question bank reloads", getQuestionReloads());
+        counter(out, "quiz_question_bank_reload_failures_total", "Failed question bank reloads",
+                server.getQuestionBank().getFailedReloadCount());
+        gauge(out, "quiz_question_bank_last_reload_milliseconds", "Duration of the last reload", getLastQuestionReloadMillis());
+        gauge(out, "quiz_question_bank_last_reload_bytes", "Size of the sources at the last reload",
+                server.getQuestionBank().getLastReloadBytes());
+        QuestionFragmentCache fragments = server.getQuestionDatabase().getFragmentCache();
+        gauge(out, "quiz_question_fragments_cached", "Encoded questions cached by the current bank", fragments.size());
+        counter(out, "quiz_question_fragment_hits_total", "ROUND_START questions served from the fragment cache",
+                fragments.getHits());
+        counter(out, "quiz_question_fragment_misses_total", "ROUND_START questions encoded on a cache miss",
+                fragments.getMisses());
+        counter(out, "quiz_question_fragment_evictions_total", "Encoded questions evicted from the fragment cache",
+                fragments.getEvictions());
+        gauge(out, "quiz_leaderboard_players", "Players with a rating", server.getLeaderboard().size());
+        counter(out, "quiz_leaderboard_games_rated_total", "Finished games applied to the ratings",
+                server.getLeaderboard().getGamesRated());
+        GameJournal journal = server.getJournal();
+        if (journal != null) {
+            counter(out, "quiz_journal_games_total", "Finished games synced to the journal", journal.getEntryCount());
+            counter(out, "quiz_journal_commits_total", "Journal group commits (one fsync each)", journal.getCommitCount());
+            counter(out, "quiz_journal_bytes_total", "Bytes written to the journal", journal.getBytesWritten());
+            gauge(out, "quiz_journal_pending_games", "Finished games waiting to be written", journal.getPendingCount());
+            summary(out, "quiz_journal_commit_microseconds", "Time to write and sync one group of games",
+                    journal.getCommitMicros());
+        }
+        gauge(out, "quiz_scheduler_pending_tasks", "Delayed game actions waiting to run",
+                server.getScheduler().getPendingTaskCount());
+        gauge(out, "quiz_answer_deadlines_pending", "Answer deadlines armed", server.getDeadlineWheel().getPendingCount());
+        counter(out, "quiz_log_events_dropped_total", "Log events dropped because the log buffer was full",
+                getLogEventsDropped());
+        summary(out, "quiz_player_rtt_microseconds", "Smoothed network round-trip time of the logged-in players",
+                playerRttMicros());
+        return out.toString();
+    }
+
+    // Distribution over the players measured so far, built per scrape; individual players are on /players/rtt.
+    private LatencyHistogram playerRttMicros() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (PlayerHandler player : server.getPlayers()) {
+            long rtt = player.getConnection().getRtt().getSmoothedNanos();
+            if (rtt >= 0) {
+                histogram.record(rtt / 1000);
+            }
+        }
+        return histogram;
+    }
+
+    // One line per logged-in player, slowest first: smoothed RTT, mean deviation and last sample in
+    // microseconds (-1 before the first sample), and the number of samples.
+    public String renderPlayerRtt() {
+        List<PlayerHandler> players = new ArrayList<>(server.getPlayers());
+        players.sort(Comparator.comparingLong(
+                (PlayerHandler player) -> player.getConnection().getRtt().getSmoothedNanos()).reversed());
+        StringBuilder out = new StringBuilder(64 + players.size() * 64);
+        out.append("# player address srtt_us rttvar_us last_us samples\n");
+        for (PlayerHandler player : players) {
+            Connection connection = player.getConnection();
+            RttEstimator rtt = connection.getRtt();
+            out.append(player.getUsername()).append(' ').append(connection.getRemoteAddress())
+                    .append(' ').append(micros(rtt.getSmoothedNanos()))
+                    .append(' ').append(micros(rtt.getDeviationNanos()))
+                    .append(' ').append(micros(rtt.getLastSampleNanos()))
+                    .append(' ').append(rtt.getSampleCount()).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static long micros(long nanos) {
+        return nanos < 0 ? -1 : nanos / 1000;
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, long value) {
+        metric(out, name, help, "gauge", value);
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        metric(out, name, help, "counter", value);
+    }
+
+    private static void metric(StringBuilder out, String name, String help, String type, long value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void summary(StringBuilder out, String name, String help, LatencyHistogram histogram) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" summary\n");
+        for (double quantile : QUANTILES) {
+            out.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                    .append(histogram.getPercentile(quantile)).append('\n');
+        }
+        out.append(name).append("_sum ").append(histogram.getSum()).append('\n');
+        out.append(name).append("_count ").append(histogram.getCount()).append('\n');
+    }
+
+    private static Map<String, Long> byType(LongAdder[] counters) {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (MessageType type : TYPES) {
+            values.put(type.name(), counters[type.ordinal()].sum());
+        }
+        return values;
+    }
+
+    @Override
+    public long getOpenConnections() {
+        return connectionsOpened.sum() - connectionsClosed.sum();
+    }
+
+    @Override
+    public int getLoggedInPlayers() {
+        return server.getPlayerCount();
+    }
+
+    @Override
+    public int getWaitingPlayers() {
+        return server.getMatchmaker().getWaitingCount();
+    }
+
+    @Override
+    public int getActiveGames() {
+        return server.getActiveGameCount();
+    }
+
+    private int getSpectatorCount() {
+        int spectators = 0;
+        for (Game game : server.getActiveGames()) {
+            spectators += game.getSpectatorCount();
+        }
+        return spectators;
+    }
+
+    @Override
+    public long getGamesStarted() {
+        return gamesStarted.sum();
+    }
+
+    @Override
+    public Map<String, Long> getMessagesIn() {
+        return byType(messagesIn);
+    }
+
+    @Override
+    public Map<String, Long> getMessagesOut() {
+        return byType(messagesOut);
+    }
+
+    @Override
+    public long getSessionsResumed() {
+        return sessionsResumed.sum();
+    }
+
+    @Override
+    public long getSessionsExpired() {
+        return sessionsExpired.sum();
+    }
+
+    @Override
+    public Map<String, Long> getPlayerRttMicros() {
+        Map<String, Long> values = new TreeMap<>();
+        for (PlayerHandler player : server.getPlayers()) {
+            values.put(player.getUsername(), micros(player.getConnection().getRtt().getSmoothedNanos()));
+        }
+        return values;
+    }
+
+    @Override
+    public long getConnectionsReaped() {
+        return connectionsReaped.sum();
+    }
+
+    @Override
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    @Override
+    public long getHandlerLatencyP50Micros() {
+        return handlerLatencyMicros.getPercentile(0.5);
+    }
+
+    @Override
+    public long getHandlerLatencyP99Micros() {
+        return handlerLatencyMicros.getPercentile(0.99);
+    }
+
+    @Override
+    public long getRoundDurationP50Millis() {
+        return roundDurationMillis.getPercentile(0.5);
+    }
+
+    @Override
+    public long getRoundDurationP99Millis() {
+        return roundDurationMillis.getPercentile(0.99);
+    }
+
+    @Override
+    public long getTimeToMatchP99Millis() {
+        return server.getMatchmaker().getTimeToMatchMillis().getPercentile(0.99);
+    }
+
+    @Override
+    public int getQuestionCount() {
+        return server.getQuestionDatabase().getQuestionCount();
+    }
+
+    @Override
+    public long getQuestionReloads() {
+        return server.getQuestionBank().getReloadCount();
+    }
+
+    @Override
+    public long getLastQuestionReloadMillis() {
+        return server.getQuestionBank().getLastReloadMillis();
+    }
+
+    @Override
+    public long getLogEventsDropped() {
+        return Log.getDroppedCount();
+    }
+}
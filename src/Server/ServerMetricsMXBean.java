@@ -0,0 +1,48 @@
+package Server;
+
+import java.util.Map;
+
+// JMX view of ServerMetrics, registered as Server:type=Metrics.
+public interface ServerMetricsMXBean {
+    long getOpenConnections();
+
+    int getLoggedInPlayers();
+
+    int getWaitingPlayers();
+
+    int getActiveGames();
+
+    long getGamesStarted();
+
+    Map<String, Long> getMessagesIn();
+
+    Map<String, Long> getMessagesOut();
+
+    long getSessionsResumed();
+
+    long getSessionsExpired();
+
+    long getConnectionsReaped();
+
+    Map<String, Long> getPlayerRttMicros();
+
+    long getBytesSent();
+
+    long getHandlerLatencyP50Micros();
+
+    long getHandlerLatencyP99Micros();
+
+    long getRoundDurationP50Millis();
+
+    long getRoundDurationP99Millis();
+
+    long getTimeToMatchP99Millis();
+
+    int getQuestionCount();
+
+    long getQuestionReloads();
+
+    long getLastQuestionReloadMillis();
+
+    long getLogEventsDropped();
+}
@@ -0,0 +1,89 @@
+package Server;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Map;
+
+// One entry of a game's spectator stream. Events carry the feed sequence, so a spectator can tell from a gap
+// that it was skipped ahead because it fell behind. Which fields are set depends on the kind:
+//   JOINED           round, scores = totals so far (sent only to the new spectator)
+//   NOT_FOUND        nothing, the game id is unknown or the game is over
+//   CATEGORY_CHOSEN  round, username = chooser, category
+//   ROUND_START      round, category, value = number of questions
+//   ANSWER_PROGRESS  round, username, value = questions answered so far, scores = this round's scores
+//   ROUND_RESULT     round, scores = totals after the round
+//   GAME_END         username = winner (null for a tie), scores = final scores
+public class SpectatorEvent implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public enum Kind {
+        JOINED,
+        NOT_FOUND,
+        CATEGORY_CHOSEN,
+        ROUND_START,
+        ANSWER_PROGRESS,
+        ROUND_RESULT,
+        GAME_END
+    }
+
+    private final long gameId;
+    private final long sequence;
+    private final Kind kind;
+    private final int round;
+    private final String username;
+    private final Category category;
+    private final int value;
+    private final Map<String, Integer> scores;
+
+    public SpectatorEvent(long gameId, long sequence, Kind kind, int round, String username, Category category,
+                          int value, Map<String, Integer> scores) {
+        this.gameId = gameId;
+        this.sequence = sequence;
+        this.kind = kind;
+        this.round = round;
+        this.username = username;
+        this.category = category;
+        this.value = value;
+        this.scores = scores == null ? Map.of() : scores;
+    }
+
+    public long getGameId() {
+        return gameId;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public int getRound() {
+        return round;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public Category getCategory() {
+        return category;
+    }
+
+    public int getValue() {
+        return value;
+    }
+
+    public Map<String, Integer> getScores() {
+        return scores;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + sequence + " game " + gameId + " " + kind + " round " + round
+                + (username != null ? " " + username : "") + (category != null ? " " + category : "")
+                + " value " + value + " scores " + scores;
+    }
+}
@@ -0,0 +1,171 @@
+package Server;
+
+import Pojos.Message;
+import Pojos.MessageType;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Live events of one game for any number of spectators. The game actor only publishes into a fixed ring of
+// encoded-once Broadcasts and schedules a fan-out; delivery runs on the shared spectator pool, serially per
+// feed, so spectators never add work to the players' own send path.
+// Each spectator has a cursor into the ring. One that fell more than a ring behind resumes at the oldest
+// event still held, and one whose outbound queue cannot take everything pending gets only the newest events
+// that fit; a spectator with a full queue is passed over and retried shortly, so it still catches up when no
+// further event is published. Either way the skipped events are visible to the client as a gap in the
+// sequence numbers. Once a spectator has been sent GAME_END it is unsubscribed and its connection closed
+// after that is written.
+public class SpectatorFeed {
+    private static final long RETRY_MILLIS = 50;
+
+    private final long gameId;
+    private final AtomicReferenceArray<Entry> ring;
+    private final int mask;
+    private final CopyOnWriteArrayList<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final Mailbox fanOut;
+    private final AtomicBoolean fanOutScheduled = new AtomicBoolean();
+    private final AtomicBoolean retryScheduled = new AtomicBoolean();
+    private final GameScheduler scheduler;
+    private final ServerMetrics metrics;
+    private volatile long head; // sequence of the next event, written by the game actor only
+    private volatile boolean ended; // set after head once GAME_END is in the ring
+
+    private static final class Entry {
+        final long sequence;
+        final Broadcast broadcast;
+
+        Entry(long sequence, Broadcast broadcast) {
+            this.sequence = sequence;
+            this.broadcast = broadcast;
+        }
+    }
+
+    // Only the feed's fan-out touches the cursor after subscribe.
+    private static final class Subscriber {
+        final PlayerHandler spectator;
+        long next;
+
+        Subscriber(PlayerHandler spectator, long next) {
+            this.spectator = spectator;
+            this.next = next;
+        }
+    }
+
+    public SpectatorFeed(long gameId, int capacity, Executor executor, GameScheduler scheduler,
+                         ServerMetrics metrics) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.gameId = gameId;
+        this.ring = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.fanOut = new Mailbox("spectators-game-" + gameId, executor);
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+    }
+
+    public long getHead() {
+        return head;
+    }
+
+    public boolean hasSubscribers() {
+        return !subscribers.isEmpty();
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    // Called on the game actor; the spectator receives every event published after this call.
+    public void subscribe(PlayerHandler spectator) {
+        subscribers.add(new Subscriber(spectator, head));
+        metrics.spectatorJoined();
+    }
+
+    // Called on the game actor.
+    public void publish(SpectatorEvent.Kind kind, int round, String username, Category category, int value,
+                       Map<String, Integer> scores) {
+        long sequence = head;
+        SpectatorEvent event = new SpectatorEvent(gameId, sequence, kind, round, username, category, value, scores);
+        ring.set((int) (sequence & mask), new Entry(sequence, new Broadcast(new Message(MessageType.SPECTATOR_EVENT, event))));
+        head = sequence + 1;
+        if (kind == SpectatorEvent.Kind.GAME_END) {
+            ended = true;
+        }
+        scheduleDelivery();
+    }
+
+    private void scheduleDelivery() {
+        if (fanOutScheduled.compareAndSet(false, true)) {
+            fanOut.send(this::deliver);
+        }
+    }
+
+    private void scheduleRetry() {
+        if (retryScheduled.compareAndSet(false, true)) {
+            scheduler.schedule("spectators-game-" + gameId + "-retry", () -> {
+                retryScheduled.set(false);
+                scheduleDelivery();
+            }, RETRY_MILLIS);
+        }
+    }
+
+    private void deliver() {
+        fanOutScheduled.set(false); // a publish from now on schedules another pass
+        boolean gameEnded = ended; // read before head, so head then covers GAME_END
+        long published = head;
+        boolean stalled = false;
+        for (Subscriber subscriber : subscribers) {
+            Connection connection = subscriber.spectator.getConnection();
+            if (connection.isClosed()) {
+                subscribers.remove(subscriber);
+                continue;
+            }
+            if (subscriber.next < published) {
+                if (!sendPending(subscriber, connection, published)) {
+                    stalled = true;
+                    continue;
+                }
+            }
+            if (gameEnded) {
+                subscribers.remove(subscriber);
+                connection.closeAfterFlush();
+            }
+        }
+        if (stalled) {
+            scheduleRetry();
+        }
+    }
+
+    // Returns false without sending anything if the spectator's queue is full.
+    private boolean sendPending(Subscriber subscriber, Connection connection, long published) {
+        long next = subscriber.next;
+        long oldest = Math.max(0, published - ring.length());
+        OutboundQueue queue = connection.getOutboundQueue();
+        int room = queue.getCapacity() - queue.getDepth() - 1; // leave a slot for the server's own messages
+        if (room <= 0) {
+            return false;
+        }
+        long from = Math.max(next, Math.max(oldest, published - room));
+        long skipped = from - next;
+        long sent = 0;
+        for (long sequence = from; sequence < published; sequence++) {
+            Entry entry = ring.get((int) (sequence & mask));
+            if (entry == null || entry.sequence != sequence) {
+                skipped++; // overwritten while we were sending
+                continue;
+            }
+            try {
+                entry.broadcast.sendTo(subscriber.spectator);
+                sent++;
+            } catch (IOException e) {
+                Log.debug("Could not encode spectator event for game {}: {}", gameId, e.getMessage());
+            }
+        }
+        subscriber.next = published;
+        metrics.spectatorEvents(sent, skipped);
+        return true;
+    }
+}
@@ -0,0 +1,67 @@
+package Server;
+
+import Pojos.FrameCodec;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+// Compares the cost of idle players in both execution modes: opens N loopback connections, parks one
+// blocking frame reader per connection and reports live OS threads and heap.
+// Usage: java Server.ThreadFootprint [platform|virtual] [connections]
+public class ThreadFootprint {
+
+    public static void main(String[] args) throws Exception {
+        ServerExecutors.Mode mode = ServerExecutors.Mode.parse(args.length > 0 ? args[0] : "virtual");
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        ServerExecutors executors = new ServerExecutors(mode, 1, 1);
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+        int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        List<Socket> sockets = new ArrayList<>();
+        CountDownLatch started = new CountDownLatch(connections);
+        long startNanos = System.nanoTime();
+        try (ServerSocket serverSocket = new ServerSocket(0, connections)) {
+            for (int i = 0; i < connections; i++) {
+                Socket client = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+                Socket accepted = serverSocket.accept();
+                sockets.add(client);
+                sockets.add(accepted);
+                executors.startConnection("idle-" + i, () -> {
+                    started.countDown();
+                    try {
+                        DataInputStream in = new DataInputStream(new BufferedInputStream(accepted.getInputStream()));
+                        FrameCodec.readFrame(in);
+                    } catch (IOException ignored) {
+                        // socket closed at the end of the run
+                    }
+                });
+            }
+            started.await();
+            long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+
+            Thread.sleep(500);
+            System.gc();
+            long heapAfter = memory.getHeapMemoryUsage().getUsed();
+            int threadsAfter = ManagementFactory.getThreadMXBean().getThreadCount();
+
+            System.out.println("Mode:                " + mode.name().toLowerCase());
+            System.out.println("Idle connections:    " + connections);
+            System.out.println("Startup time:        " + elapsedMillis + " ms");
+            System.out.println("Live OS threads:     " + threadsBefore + " -> " + threadsAfter);
+            System.out.println("Heap used:           " + (heapBefore / 1024) + " KB -> " + (heapAfter / 1024) + " KB");
+            System.out.println("Heap per connection: " + ((heapAfter - heapBefore) / connections) + " bytes");
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+        }
+    }
+}
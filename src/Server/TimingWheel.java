@@ -0,0 +1,201 @@
+package Server;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+// Hashed timing wheel for large numbers of short deadlines. One ticker thread advances a ring of buckets;
+// a timeout lands in bucket (expiry tick % wheel size) and carries the number of full turns it still has to wait.
+// Scheduling and cancelling only enqueue the request (O(1)); the ticker links/unlinks it in its bucket.
+public class TimingWheel {
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Thread ticker;
+    private final long startNanos;
+    private volatile boolean running = true;
+    private long tick;
+
+    public TimingWheel(long tickMillis, int wheelSize) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMillis));
+        int size = Integer.highestOneBit(Math.max(2, wheelSize - 1)) << 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.startNanos = System.nanoTime();
+        this.ticker = new Thread(this::run, "timing-wheel");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    public Timeout schedule(Runnable task, long delayMillis) {
+        long deadline = System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis));
+        Timeout timeout = new Timeout(this, task, deadline);
+        pending.incrementAndGet();
+        added.offer(timeout);
+        return timeout;
+    }
+
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    public void shutdown() {
+        running = false;
+        ticker.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            long tickDeadline = (tick + 1) * tickNanos;
+            long sleepNanos = tickDeadline - (System.nanoTime() - startNanos);
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        return;
+                    }
+                }
+                continue;
+            }
+            removeCancelled();
+            transferAdded();
+            wheel[(int) (tick & mask)].expire(tickDeadline);
+            tick++;
+        }
+    }
+
+    private void transferAdded() {
+        // bounded per tick so that a burst of scheduling cannot starve expiry
+        for (int i = 0; i < 100_000; i++) {
+            Timeout timeout = added.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.state != Timeout.PENDING) {
+                continue;
+            }
+            long expiryTick = Math.max(timeout.deadlineNanos / tickNanos, tick);
+            timeout.remainingRounds = (expiryTick - tick) / wheel.length;
+            wheel[(int) (expiryTick & mask)].add(timeout);
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    public static final class Timeout {
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final TimingWheel wheel;
+        private final Runnable task;
+        private final long deadlineNanos;
+        private volatile int state = PENDING;
+        private long remainingRounds;
+        private Timeout next;
+        private Timeout prev;
+        private Bucket bucket;
+
+        private Timeout(TimingWheel wheel, Runnable task, long deadlineNanos) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        // Returns false if the timeout already fired or was cancelled before.
+        public boolean cancel() {
+            if (!STATE.compareAndSet(this, PENDING, CANCELLED)) {
+                return false;
+            }
+            wheel.pending.decrementAndGet();
+            wheel.cancelled.offer(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        private void expire() {
+            if (!STATE.compareAndSet(this, PENDING, EXPIRED)) {
+                return;
+            }
+            wheel.pending.decrementAndGet();
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                Log.error("Timeout task failed", e);
+            }
+        }
+    }
+
+    // Doubly linked list of timeouts, only touched by the ticker thread.
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void expire(long tickDeadline) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0 && timeout.deadlineNanos <= tickDeadline) {
+                    remove(timeout);
+                    timeout.expire();
+                } else if (timeout.state != Timeout.PENDING) {
+                    remove(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            } else {
+                tail = timeout.prev;
+            }
+            timeout.next = null;
+            timeout.prev = null;
+            timeout.bucket = null;
+        }
+    }
+}